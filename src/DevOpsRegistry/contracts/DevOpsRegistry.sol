@@ -7,24 +7,29 @@ pragma solidity >=0.7.0 <0.9.0;
  * @dev Implements voting process
  */
 contract DevOpsRegistry {
-    event NominateVoter(address nominee);
-    event ReleaseVoter(address releasee);
-    event VersionProposalCreated(bytes20 proposal);
-    event DeploymentProposalCreated(address proposal);
+    event NominateVoter(address indexed nominee);
+    event ReleaseVoter(address indexed releasee);
+    event VersionProposalCreated(bytes20 indexed proposal);
+    event DeploymentProposalCreated(address indexed proposal);
     event VersionQuorumProposalCreated(uint newVersionQuorum);
     event RoleBindingQuorumProposalCreated(uint newRoleBindingQuorum);
-    event RoleBindingVoteCast(address voter, address subject, bool accepted);
-    event VersionVoteCast(address voter, bytes20 proposal, bool accepted);
-    event DeploymentVoteCast(address voter, address proposal, bool accepted);
-    event QuorumVoteCast(address voter, bool accepted);
-    event RoleBindingAccepted(address subject);
-    event RoleBindingRejected(address subject);
-    event VersionAccepted(bytes20 subject);
-    event VersionRejected(bytes20 subject);
-    event DeploymentAccepted(address subject);
-    event DeploymentRejected(address subject);
+    event RoleBindingVoteCast(address indexed voter, address indexed subject, bool accepted);
+    event VersionVoteCast(address indexed voter, bytes20 indexed proposal, bool accepted);
+    event DeploymentVoteCast(address indexed voter, address indexed proposal, bool accepted);
+    event QuorumVoteCast(address indexed voter, bool accepted);
+    event RoleBindingAccepted(address indexed subject);
+    event RoleBindingRejected(address indexed subject);
+    event VersionAccepted(bytes20 indexed subject);
+    event VersionRejected(bytes20 indexed subject);
+    event DeploymentAccepted(address indexed subject);
+    event DeploymentRejected(address indexed subject);
     event QuorumAccepted();
     event QuorumRejected();
+    event NominatePipeline(address indexed nominee);
+    event ReleasePipeline(address indexed releasee);
+    event PipelineVoteCast(address indexed voter, address indexed subject, bool accepted);
+    event PipelineAccepted(address indexed subject);
+    event PipelineRejected(address indexed subject);
 
     enum ProposalState {
         INACTIVE,
@@ -33,18 +38,20 @@ contract DevOpsRegistry {
         REJECTED
     }
 
+    // state and both counters share one storage slot, so a vote writes a single slot besides the voter list
     struct VersionProposal {
         ProposalState state;
+        uint32 numberOfPositiveVoters;
+        uint32 numberOfNegativeVoters;
         address[] voters;
-        uint numberOfPositiveVoters;
-        uint numberOfNegativeVoters;
     }
 
+    // state and both counters share one storage slot, so a vote writes a single slot besides the voter list
     struct DeploymentProposal {
         ProposalState state;
+        uint32 numberOfPositiveVoters;
+        uint32 numberOfNegativeVoters;
         address[] voters;
-        uint numberOfPositiveVoters;
-        uint numberOfNegativeVoters;
     }
 
     enum RoleBindingState {
@@ -57,9 +64,9 @@ contract DevOpsRegistry {
 
     struct RoleBindingProposal {
         RoleBindingState state;
+        uint32 numberOfPositiveVoters;
+        uint32 numberOfNegativeVoters;
         address[] voters;
-        uint numberOfPositiveVoters;
-        uint numberOfNegativeVoters;
     }
 
     enum QuorumState {
@@ -72,20 +79,26 @@ contract DevOpsRegistry {
 
     struct QuorumProposal {
         QuorumState state;
-        uint newQuorum;
+        uint8 newQuorum;
+        uint32 numberOfPositiveVoters;
+        uint32 numberOfNegativeVoters;
         address[] voters;
-        uint numberOfPositiveVoters;
-        uint numberOfNegativeVoters;
     }
 
+    // the deploying pipeline, further pipelines are added and removed by PipelineProposals; when the main pipeline is
+    // released this is zero until the next pipeline is accepted, which then becomes the main pipeline
     address public mainPipeline;
 
+    mapping(address => bool) public pipelines;
+    uint numberOfPipelines;
+
     mapping(address => bool) public voters;
     uint numberOfVoters;
 
     mapping(bytes20 => VersionProposal) versionProposals;
     mapping(address => DeploymentProposal) deploymentProposals;
     mapping(address => RoleBindingProposal) roleBindingProposals;
+    mapping(address => RoleBindingProposal) pipelineProposals;
     QuorumProposal quorumProposal;
 
     uint versionQuorum;
@@ -101,6 +114,8 @@ contract DevOpsRegistry {
      */
     constructor(address[] memory initialVoters, uint initialVersionQuorum, uint initialRoleBindingQuorum) {
         mainPipeline = msg.sender;
+        pipelines[msg.sender] = true;
+        numberOfPipelines = 1;
         if (initialVersionQuorum > 100) {
             revert("Initial quorum should be between 0 and 100");
         }
@@ -120,9 +135,9 @@ contract DevOpsRegistry {
         quorumProposal.numberOfNegativeVoters = 0;
     }
 
-    // modifier to check if caller is the main pipeline
-    modifier isMainPipeline() {
-        require(msg.sender == mainPipeline, "Caller is not registered as the main pipeline");
+    // modifier to check if caller is one of the pipelines
+    modifier isPipeline() {
+        require(pipelines[msg.sender], "Caller is not amongst the pipelines");
         _;
     }
 
@@ -177,6 +192,35 @@ contract DevOpsRegistry {
         _;
     }
 
+    // modifier to check that a PipelineProposal for this candidate exists
+    modifier ppExists(address candidate) {
+        require(pipelineProposals[candidate].state != RoleBindingState.INACTIVE, "This PipelineProposal does not exist");
+        _;
+    }
+
+    // modifier to check that a PipelineProposal for this candidate is not currently active, decided ones may be proposed again
+    modifier ppUnique(address candidate) {
+        RoleBindingState state = pipelineProposals[candidate].state;
+        require(state != RoleBindingState.NOMINATION && state != RoleBindingState.RELEASE, "PipelineProposal with that address already exists");
+        _;
+    }
+
+    // modifier to check that a PipelineProposal for this candidate is still open for votes
+    modifier ppActive(address candidate) {
+        RoleBindingState state = pipelineProposals[candidate].state;
+        require(state == RoleBindingState.NOMINATION || state == RoleBindingState.RELEASE, "This PipelineProposal is not open for votes");
+        _;
+    }
+
+    // modifier to check that the caller has not voted on this PipelineProposal yet
+    modifier ppNotVoted(address candidate) {
+        RoleBindingProposal storage proposal = pipelineProposals[candidate];
+        for (uint i = 0; i < proposal.voters.length; i++) {
+            require(proposal.voters[i] != msg.sender, "You have already voted on this PipelineProposal");
+        }
+        _;
+    }
+
     // modifier to check that a DeploymentProposal for this address exists
     modifier dpExists(address newDeployment) {
         DeploymentProposal storage deploymentProposal = deploymentProposals[newDeployment];
@@ -259,10 +303,38 @@ contract DevOpsRegistry {
     }
 
     /**
-     * @dev Create a VersionProposal. May only be called by the main pipeline.
+     * @dev Allow 'candidate' to create proposals. May only be called by voters.
+     * @param candidate address of the new pipeline
+     */
+    function nominatePipeline(address candidate) public isVoter ppUnique(candidate) {
+        require(!pipelines[candidate], "Address is already amongst the pipelines");
+        RoleBindingProposal storage pipelineProposal = pipelineProposals[candidate];
+        pipelineProposal.state = RoleBindingState.NOMINATION;
+        pipelineProposal.numberOfPositiveVoters = 0;
+        pipelineProposal.numberOfNegativeVoters = 0;
+        delete pipelineProposal.voters;
+        emit NominatePipeline(candidate);
+    }
+
+    /**
+     * @dev Remove candidate's right to create proposals. May only be called by voters.
+     * @param candidate address of the to-be-removed pipeline
+     */
+    function releasePipeline(address candidate) public isVoter ppUnique(candidate) {
+        require(pipelines[candidate], "Address is not amongst the pipelines");
+        RoleBindingProposal storage pipelineProposal = pipelineProposals[candidate];
+        pipelineProposal.state = RoleBindingState.RELEASE;
+        pipelineProposal.numberOfPositiveVoters = 0;
+        pipelineProposal.numberOfNegativeVoters = 0;
+        delete pipelineProposal.voters;
+        emit ReleasePipeline(candidate);
+    }
+
+    /**
+     * @dev Create a VersionProposal. May only be called by the pipelines.
      * @param name name of the VersionProposal (Git commit hash)
      */
-    function createVersionProposal(bytes20 name) public isMainPipeline vpUnique(name) {
+    function createVersionProposal(bytes20 name) public isPipeline vpUnique(name) {
         VersionProposal storage versionProposal = versionProposals[name];
         versionProposal.state = ProposalState.ACTIVE;
         versionProposal.numberOfPositiveVoters = 0;
@@ -272,10 +344,11 @@ contract DevOpsRegistry {
     }
 
     /**
-     * @dev Create a DeploymentProposal. May only be called by the main pipeline.
-     * @param newDeployment address of the new deployment (replaces applicationContract when accepted)
+     * @dev Create a DeploymentProposal. May only be called by the pipelines.
+     * @param newDeployment address of the new deployment (replaces applicationContract when accepted, so of several
+     *                      DeploymentProposals the one accepted last is the applicationContract)
      */
-    function createDeploymentProposal(address newDeployment) public isMainPipeline dpUnique(newDeployment) {
+    function createDeploymentProposal(address newDeployment) public isPipeline dpUnique(newDeployment) {
         DeploymentProposal storage deploymentProposal = deploymentProposals[newDeployment];
         deploymentProposal.state = ProposalState.ACTIVE;
         deploymentProposal.numberOfPositiveVoters = 0;
@@ -290,7 +363,7 @@ contract DevOpsRegistry {
      */
     function createVersionQuorumProposal(uint quorum) public isVoter quorumValid(quorum) qpUnique {
         quorumProposal.state = QuorumState.VERSION;
-        quorumProposal.newQuorum = quorum;
+        quorumProposal.newQuorum = uint8(quorum);
         quorumProposal.numberOfPositiveVoters = 0;
         quorumProposal.numberOfNegativeVoters = 0;
         delete quorumProposal.voters;
@@ -303,7 +376,7 @@ contract DevOpsRegistry {
      */
     function createRoleBindingQuorumProposal(uint quorum) public isVoter quorumValid(quorum) qpUnique {
         quorumProposal.state = QuorumState.ROLEBINDING;
-        quorumProposal.newQuorum = quorum;
+        quorumProposal.newQuorum = uint8(quorum);
         quorumProposal.numberOfPositiveVoters = 0;
         quorumProposal.numberOfNegativeVoters = 0;
         delete quorumProposal.voters;
@@ -343,7 +416,10 @@ contract DevOpsRegistry {
         if (versionProposal.state == ProposalState.ACCEPTED) {
             return true;
         }
-        uint acceptanceRatio = (versionProposal.numberOfPositiveVoters * 100) / numberOfVoters;
+        if (versionProposal.state == ProposalState.REJECTED) {
+            return false;
+        }
+        uint acceptanceRatio = (uint(versionProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
         return acceptanceRatio >= versionQuorum;
     }
 
@@ -356,7 +432,10 @@ contract DevOpsRegistry {
         if (versionProposal.state == ProposalState.REJECTED) {
             return true;
         }
-        uint rejectionRatio = (versionProposal.numberOfNegativeVoters * 100) / numberOfVoters;
+        if (versionProposal.state == ProposalState.ACCEPTED) {
+            return false;
+        }
+        uint rejectionRatio = (uint(versionProposal.numberOfNegativeVoters) * 100) / numberOfVoters;
         return rejectionRatio > (100 - versionQuorum);
     }
 
@@ -409,16 +488,95 @@ contract DevOpsRegistry {
         }
     }
 
+    /**
+     * @dev Give your vote to a PipelineProposal for the given candidate, decided with the role binding quorum
+     * @param candidate address of the candidate to vote for
+     * @param accept indicates that you accept the proposal
+     */
+    function votePipelineProposal(address candidate, bool accept) public isVoter ppActive(candidate) ppNotVoted(candidate) {
+        RoleBindingProposal storage pipelineProposal = pipelineProposals[candidate];
+        pipelineProposal.voters.push(msg.sender);
+        if (accept) {
+            pipelineProposal.numberOfPositiveVoters++;
+        } else {
+            pipelineProposal.numberOfNegativeVoters++;
+        }
+        emit PipelineVoteCast(msg.sender, candidate, accept);
+
+        if (pipelineProposalAccepted(candidate)) {
+            if (pipelineProposal.state == RoleBindingState.RELEASE && numberOfPipelines == 1) {
+                // another release was accepted meanwhile, the last pipeline stays
+                pipelineProposal.state = RoleBindingState.REJECTED;
+                emit PipelineRejected(candidate);
+                return;
+            }
+            if (pipelineProposal.state == RoleBindingState.NOMINATION) {
+                pipelines[candidate] = true;
+                numberOfPipelines++;
+                if (mainPipeline == address(0)) {
+                    mainPipeline = candidate;
+                }
+            }
+            if (pipelineProposal.state == RoleBindingState.RELEASE) {
+                pipelines[candidate] = false;
+                numberOfPipelines--;
+                if (mainPipeline == candidate) {
+                    mainPipeline = address(0);
+                }
+            }
+            pipelineProposal.state = RoleBindingState.ACCEPTED;
+            emit PipelineAccepted(candidate);
+        } else if (pipelineProposalRejected(candidate)) {
+            pipelineProposal.state = RoleBindingState.REJECTED;
+            emit PipelineRejected(candidate);
+        }
+    }
+
+    /**
+     * @dev Public view into the state of a PipelineProposal: was it accepted?
+     * @param candidate address of the candidate to check
+     */
+    function pipelineProposalAccepted(address candidate) public view ppExists(candidate) returns (bool) {
+        RoleBindingProposal storage pipelineProposal = pipelineProposals[candidate];
+        if (pipelineProposal.state == RoleBindingState.ACCEPTED) {
+            return true;
+        }
+        if (pipelineProposal.state == RoleBindingState.REJECTED) {
+            return false;
+        }
+        uint acceptanceRatio = (uint(pipelineProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
+        return acceptanceRatio >= roleBindingQuorum;
+    }
+
+    /**
+     * @dev Public view into the state of a PipelineProposal: was it rejected?
+     * @param candidate address of the candidate to check
+     */
+    function pipelineProposalRejected(address candidate) public view ppExists(candidate) returns (bool) {
+        RoleBindingProposal storage pipelineProposal = pipelineProposals[candidate];
+        if (pipelineProposal.state == RoleBindingState.REJECTED) {
+            return true;
+        }
+        if (pipelineProposal.state == RoleBindingState.ACCEPTED) {
+            return false;
+        }
+        uint acceptanceRatio = (uint(pipelineProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
+        return acceptanceRatio < roleBindingQuorum && pipelineProposal.voters.length == numberOfVoters;
+    }
+
     /**
      * @dev Public view into the state of a RoleBindingProposal: was it accepted?
      * @param candidate address of the candidate to check
      */
     function roleBindingProposalAccepted(address candidate) public view rbpExists(candidate) returns (bool) {
-        RoleBindingProposal memory roleBindingProposal = roleBindingProposals[candidate];
+        RoleBindingProposal storage roleBindingProposal = roleBindingProposals[candidate];
         if (roleBindingProposal.state == RoleBindingState.ACCEPTED) {
             return true;
         }
-        uint acceptanceRatio = (roleBindingProposal.numberOfPositiveVoters * 100) / numberOfVoters;
+        if (roleBindingProposal.state == RoleBindingState.REJECTED) {
+            return false;
+        }
+        uint acceptanceRatio = (uint(roleBindingProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
         return acceptanceRatio >= roleBindingQuorum;
     }
 
@@ -427,11 +585,14 @@ contract DevOpsRegistry {
      * @param candidate address of the candidate to check
      */
     function roleBindingProposalRejected(address candidate) public view rbpExists(candidate) returns (bool) {
-        RoleBindingProposal memory roleBindingProposal = roleBindingProposals[candidate];
+        RoleBindingProposal storage roleBindingProposal = roleBindingProposals[candidate];
         if (roleBindingProposal.state == RoleBindingState.REJECTED) {
             return true;
         }
-        uint acceptanceRatio = (roleBindingProposal.numberOfPositiveVoters * 100) / numberOfVoters;
+        if (roleBindingProposal.state == RoleBindingState.ACCEPTED) {
+            return false;
+        }
+        uint acceptanceRatio = (uint(roleBindingProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
         return acceptanceRatio < roleBindingQuorum && roleBindingProposal.voters.length == numberOfVoters;
     }
 
@@ -470,7 +631,7 @@ contract DevOpsRegistry {
         if (quorumProposal.state == QuorumState.ACCEPTED) {
             return true;
         }
-        uint acceptanceRatio = (quorumProposal.numberOfPositiveVoters * 100) / numberOfVoters;
+        uint acceptanceRatio = (uint(quorumProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
         return acceptanceRatio >= roleBindingQuorum;
     }
 
@@ -481,7 +642,7 @@ contract DevOpsRegistry {
         if (quorumProposal.state == QuorumState.REJECTED) {
             return true;
         }
-        uint acceptanceRatio = (quorumProposal.numberOfPositiveVoters * 100) / numberOfVoters;
+        uint acceptanceRatio = (uint(quorumProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
         return acceptanceRatio < roleBindingQuorum && quorumProposal.voters.length == numberOfVoters;
     }
 
@@ -515,8 +676,14 @@ contract DevOpsRegistry {
      * @param newDeployment address of the newly deployed contract to check
      */
     function deploymentProposalAccepted(address newDeployment) public view dpExists(newDeployment) returns (bool) {
-        DeploymentProposal memory deploymentProposal = deploymentProposals[newDeployment];
-        uint acceptanceRatio = (deploymentProposal.numberOfPositiveVoters * 100) / numberOfVoters;
+        DeploymentProposal storage deploymentProposal = deploymentProposals[newDeployment];
+        if (deploymentProposal.state == ProposalState.ACCEPTED) {
+            return true;
+        }
+        if (deploymentProposal.state == ProposalState.REJECTED) {
+            return false;
+        }
+        uint acceptanceRatio = (uint(deploymentProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
         return acceptanceRatio >= roleBindingQuorum;
     }
 
@@ -525,8 +692,14 @@ contract DevOpsRegistry {
      * @param newDeployment address of the newly deployed contract to check
      */
     function deploymentProposalRejected(address newDeployment) public view dpExists(newDeployment) returns (bool) {
-        DeploymentProposal memory deploymentProposal = deploymentProposals[newDeployment];
-        uint acceptanceRatio = (deploymentProposal.numberOfPositiveVoters * 100) / numberOfVoters;
+        DeploymentProposal storage deploymentProposal = deploymentProposals[newDeployment];
+        if (deploymentProposal.state == ProposalState.REJECTED) {
+            return true;
+        }
+        if (deploymentProposal.state == ProposalState.ACCEPTED) {
+            return false;
+        }
+        uint acceptanceRatio = (uint(deploymentProposal.numberOfPositiveVoters) * 100) / numberOfVoters;
         return acceptanceRatio < roleBindingQuorum && deploymentProposal.voters.length == numberOfVoters;
     }
 
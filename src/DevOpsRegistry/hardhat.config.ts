@@ -5,6 +5,14 @@ import "hardhat-gas-reporter";
 
 const config: HardhatUserConfig = {
   solidity: "0.8.17",
+  networks: {
+    hardhat: {
+      // main pipeline, up to 200 voters and one candidate for the gas benchmarks
+      accounts: {
+        count: 202
+      }
+    }
+  },
   gasReporter: {
     enabled: (process.env.REPORT_GAS) ? true : false
   }
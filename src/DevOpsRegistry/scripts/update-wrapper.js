@@ -0,0 +1,24 @@
+// Copies the creation code of the compiled DevOpsRegistry into the BINARY of the web3j wrapper of the plugin.
+// Run with "npm run wrapper", which compiles the contract and regenerates the typechain types first.
+const fs = require("fs");
+const path = require("path");
+
+const ARTIFACT = path.join(__dirname, "..", "artifacts", "contracts", "DevOpsRegistry.sol", "DevOpsRegistry.json");
+const WRAPPER = path.join(__dirname, "..", "..", "main", "java", "de", "tu_berlin", "sbe", "DevOpsRegistry.java");
+
+const artifact = JSON.parse(fs.readFileSync(ARTIFACT, "utf8"));
+const wrapper = fs.readFileSync(WRAPPER, "utf8");
+const binary = /public static final String BINARY = "[0-9a-f]*";/;
+if (!binary.test(wrapper)) {
+    throw new Error(`No BINARY found in ${WRAPPER}`);
+}
+fs.writeFileSync(WRAPPER, wrapper.replace(binary, `public static final String BINARY = "${artifact.bytecode.replace(/^0x/, "")}";`));
+console.log(`BINARY of ${WRAPPER} updated from ${ARTIFACT}`);
+
+// the functions and events of the wrapper are maintained by hand, so list the ones it lacks
+const missing = artifact.abi
+    .filter(fragment => fragment.type === "function" || fragment.type === "event")
+    .filter(fragment => !wrapper.includes(`"${fragment.name}"`));
+for (const fragment of missing) {
+    console.warn(`The wrapper has no ${fragment.type} ${fragment.name}(${fragment.inputs.map(input => input.type).join(",")})`);
+}
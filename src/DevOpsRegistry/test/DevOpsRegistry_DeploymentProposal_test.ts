@@ -22,7 +22,7 @@ describe("DevOpsRegistry DeploymentProposal Tests", function() {
     it("should reject a DeploymentProposal", async function() {
         const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
         const deploymentProposalAddress = ethers.utils.getAddress("0x71C7656EC7ab88b098defB751B7401B5f6d8976F");
-        await expect(devOpsRegistryInstance.connect(voter1).createDeploymentProposal(deploymentProposalAddress)).to.be.revertedWith("Caller is not registered as the main pipeline");
+        await expect(devOpsRegistryInstance.connect(voter1).createDeploymentProposal(deploymentProposalAddress)).to.be.revertedWith("Caller is not amongst the pipelines");
     });
 
     it("should reject a double DeploymentProposal", async function() {
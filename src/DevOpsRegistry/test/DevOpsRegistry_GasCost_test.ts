@@ -1,34 +1,115 @@
 import { expect } from "chai";
 import hre from "hardhat";
 import { ethers } from "hardhat";
-const { loadFixture } = require("@nomicfoundation/hardhat-network-helpers");
+import fs from "fs";
+import path from "path";
+
+// Gas used per operation, keyed by "<proposal type>/<operation>/<number of voters>"
+type GasReport = { [operation: string]: number };
+
+const VOTER_COUNTS = [1, 5, 10, 25, 50, 100, 200];
+const BASELINE_FILE = path.join(__dirname, "..", "gas-baseline.json");
+// allowed increase over the baseline in percent
+const THRESHOLD = Number(process.env.GAS_REGRESSION_THRESHOLD ?? "1");
 
 describe("DevOpsRegistry GasCost Tests", function() {
-    it("should measure gas cost for voting with one voter COMPLETE", async function() {
-        const [mainPipeline, voter1, voter2, voter3, voter4, voter5] = await ethers.getSigners();
-        const initialVoters = [voter1.address];
-        const DevOpsRegistry = await hre.ethers.getContractFactory("DevOpsRegistry");
-        const devOpsRegistryInstance = await DevOpsRegistry.deploy(initialVoters, 100, 100);
+    this.timeout(0);
 
-        const versionProposalName = ethers.utils.hexZeroPad("0x5", 20);
-        await expect(devOpsRegistryInstance.createVersionProposal(versionProposalName)).not.to.be.reverted;
-        await expect(devOpsRegistryInstance.connect(voter1).voteVersionProposal(versionProposalName, true)).not.to.be.reverted;
-        expect(await devOpsRegistryInstance.versionProposalAccepted(versionProposalName)).to.equal(true);
-    });
+    const report: GasReport = {};
 
-    it("should measure gas cost for voting with five voters COMPLETE", async function() {
-        const [mainPipeline, voter1, voter2, voter3, voter4, voter5] = await ethers.getSigners();
-        const initialVoters = [voter1.address, voter2.address, voter3.address, voter4.address, voter5.address];
+    async function deployDevOpsRegistryFixture(numberOfVoters: number) {
+        const [mainPipeline, ...signers] = await ethers.getSigners();
+        const voters = signers.slice(0, numberOfVoters);
+        const unregistered = signers[numberOfVoters];
         const DevOpsRegistry = await hre.ethers.getContractFactory("DevOpsRegistry");
-        const devOpsRegistryInstance = await DevOpsRegistry.deploy(initialVoters, 100, 100);
-
-        const versionProposalName = ethers.utils.hexZeroPad("0x5", 20);
-        await expect(devOpsRegistryInstance.createVersionProposal(versionProposalName)).not.to.be.reverted;
-        await expect(devOpsRegistryInstance.connect(voter1).voteVersionProposal(versionProposalName, true)).not.to.be.reverted;
-        await expect(devOpsRegistryInstance.connect(voter2).voteVersionProposal(versionProposalName, true)).not.to.be.reverted;
-        await expect(devOpsRegistryInstance.connect(voter3).voteVersionProposal(versionProposalName, true)).not.to.be.reverted;
-        await expect(devOpsRegistryInstance.connect(voter4).voteVersionProposal(versionProposalName, true)).not.to.be.reverted;
-        await expect(devOpsRegistryInstance.connect(voter5).voteVersionProposal(versionProposalName, true)).not.to.be.reverted;
-        expect(await devOpsRegistryInstance.versionProposalAccepted(versionProposalName)).to.equal(true);
+        const devOpsRegistryInstance = await DevOpsRegistry.deploy(voters.map(voter => voter.address), 100, 100);
+        await devOpsRegistryInstance.deployed();
+
+        return { mainPipeline, voters, unregistered, devOpsRegistryInstance };
+    }
+
+    async function gasUsed(transaction: Promise<any>): Promise<number> {
+        const receipt = await (await transaction).wait();
+        return receipt.gasUsed.toNumber();
+    }
+
+    // records creation, the first vote, the deciding last vote and the sum over the whole proposal
+    async function measure(type: string, numberOfVoters: number, create: () => Promise<any>, vote: (index: number) => Promise<any>) {
+        report[`${type}/create/${numberOfVoters}`] = await gasUsed(create());
+        let total = report[`${type}/create/${numberOfVoters}`];
+        for (let i = 0; i < numberOfVoters; i++) {
+            const gas = await gasUsed(vote(i));
+            if (i == 0) {
+                report[`${type}/firstVote/${numberOfVoters}`] = gas;
+            }
+            if (i == numberOfVoters - 1) {
+                report[`${type}/lastVote/${numberOfVoters}`] = gas;
+            }
+            total += gas;
+        }
+        report[`${type}/total/${numberOfVoters}`] = total;
+    }
+
+    for (const numberOfVoters of VOTER_COUNTS) {
+        it(`should measure gas cost for a VersionProposal with ${numberOfVoters} voters`, async function() {
+            const { voters, devOpsRegistryInstance } = await deployDevOpsRegistryFixture(numberOfVoters);
+            const versionProposalName = ethers.utils.hexZeroPad("0x5", 20);
+            await measure("version", numberOfVoters,
+                () => devOpsRegistryInstance.createVersionProposal(versionProposalName),
+                i => devOpsRegistryInstance.connect(voters[i]).voteVersionProposal(versionProposalName, true));
+            expect(await devOpsRegistryInstance.versionProposalAccepted(versionProposalName)).to.equal(true);
+        });
+
+        it(`should measure gas cost for a DeploymentProposal with ${numberOfVoters} voters`, async function() {
+            const { voters, devOpsRegistryInstance } = await deployDevOpsRegistryFixture(numberOfVoters);
+            const newDeployment = ethers.utils.hexZeroPad("0x5", 20);
+            await measure("deployment", numberOfVoters,
+                () => devOpsRegistryInstance.createDeploymentProposal(newDeployment),
+                i => devOpsRegistryInstance.connect(voters[i]).voteDeploymentProposal(newDeployment, true));
+            expect(await devOpsRegistryInstance.deploymentProposalAccepted(newDeployment)).to.equal(true);
+        });
+
+        it(`should measure gas cost for a RoleBindingProposal with ${numberOfVoters} voters`, async function() {
+            const { voters, unregistered, devOpsRegistryInstance } = await deployDevOpsRegistryFixture(numberOfVoters);
+            await measure("roleBinding", numberOfVoters,
+                () => devOpsRegistryInstance.connect(voters[0]).nominateVoter(unregistered.address),
+                i => devOpsRegistryInstance.connect(voters[i]).voteRoleBindingProposal(unregistered.address, true));
+            expect(await devOpsRegistryInstance.roleBindingProposalAccepted(unregistered.address)).to.equal(true);
+        });
+
+        it(`should measure gas cost for a QuorumProposal with ${numberOfVoters} voters`, async function() {
+            const { voters, devOpsRegistryInstance } = await deployDevOpsRegistryFixture(numberOfVoters);
+            await measure("quorum", numberOfVoters,
+                () => devOpsRegistryInstance.connect(voters[0]).createVersionQuorumProposal(50),
+                i => devOpsRegistryInstance.connect(voters[i]).voteQuorumProposal(true));
+            expect(await devOpsRegistryInstance.quorumProposalAccepted()).to.equal(true);
+        });
+    }
+
+    after(function() {
+        const sorted: GasReport = {};
+        Object.keys(report).sort().forEach(operation => sorted[operation] = report[operation]);
+
+        if (process.env.UPDATE_GAS_BASELINE) {
+            fs.writeFileSync(BASELINE_FILE, JSON.stringify(sorted, null, 2) + "\n");
+            console.log(`Gas baseline written to ${BASELINE_FILE}`);
+            return;
+        }
+
+        expect(fs.existsSync(BASELINE_FILE), `${BASELINE_FILE} is missing, run with UPDATE_GAS_BASELINE=1 and commit it`).to.be.true;
+        const baseline: GasReport = JSON.parse(fs.readFileSync(BASELINE_FILE, "utf8"));
+        const regressions: string[] = [];
+        for (const operation of Object.keys(sorted)) {
+            const expected = baseline[operation];
+            if (expected === undefined) {
+                regressions.push(`${operation}: not in the baseline`);
+                continue;
+            }
+            const change = (sorted[operation] - expected) * 100 / expected;
+            if (change > THRESHOLD) {
+                regressions.push(`${operation}: ${expected} -> ${sorted[operation]} (+${change.toFixed(2)}%)`);
+            }
+        }
+        expect(regressions, `Gas regressions above ${THRESHOLD}%, run with UPDATE_GAS_BASELINE=1 to accept them`).to.be.empty;
     });
-});
\ No newline at end of file
+});
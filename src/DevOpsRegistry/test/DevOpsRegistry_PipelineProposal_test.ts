@@ -0,0 +1,109 @@
+import { expect } from "chai";
+import hre from "hardhat";
+import { ethers } from "hardhat";
+const { loadFixture } = require("@nomicfoundation/hardhat-network-helpers");
+
+describe("DevOpsRegistry PipelineProposal Tests", function() {
+    async function deployDevOpsRegistryFixture() {
+        const [mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2] = await ethers.getSigners();
+        const initialVoters = [voter1.address, voter2.address, voter3.address];
+        const DevOpsRegistry = await hre.ethers.getContractFactory("DevOpsRegistry");
+        const devOpsRegistryInstance = await DevOpsRegistry.deploy(initialVoters, 100, 100);
+
+        return { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance };
+    }
+
+    async function nominatePipeline(devOpsRegistryInstance: any, voters: any[], candidate: string) {
+        await expect(devOpsRegistryInstance.connect(voters[0]).nominatePipeline(candidate)).to.emit(devOpsRegistryInstance, "NominatePipeline").withArgs(candidate);
+        for (const voter of voters) {
+            await expect(devOpsRegistryInstance.connect(voter).votePipelineProposal(candidate, true)).not.to.be.reverted;
+        }
+    }
+
+    it("should register the deployer as a pipeline", async function() {
+        const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
+        expect(await devOpsRegistryInstance.pipelines(mainPipeline.address)).to.equal(true);
+        expect(await devOpsRegistryInstance.pipelines(unregistered1.address)).to.equal(false);
+    });
+
+    it("should let an accepted pipeline create proposals", async function() {
+        const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
+        const versionProposalName = ethers.utils.hexZeroPad("0x5", 20);
+        await expect(devOpsRegistryInstance.connect(unregistered1).createVersionProposal(versionProposalName)).to.be.revertedWith("Caller is not amongst the pipelines");
+
+        await nominatePipeline(devOpsRegistryInstance, [voter1, voter2, voter3], unregistered1.address);
+        expect(await devOpsRegistryInstance.pipelines(unregistered1.address)).to.equal(true);
+        await expect(devOpsRegistryInstance.connect(unregistered1).createVersionProposal(versionProposalName)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(unregistered1).createDeploymentProposal(unregistered2.address)).not.to.be.reverted;
+        // the main pipeline keeps its right
+        await expect(devOpsRegistryInstance.createVersionProposal(ethers.utils.hexZeroPad("0x6", 20))).not.to.be.reverted;
+    });
+
+    it("should reject a pipeline nomination without the role binding quorum", async function() {
+        const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
+        await expect(devOpsRegistryInstance.connect(voter1).nominatePipeline(unregistered1.address)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter1).votePipelineProposal(unregistered1.address, true)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter2).votePipelineProposal(unregistered1.address, true)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter3).votePipelineProposal(unregistered1.address, false)).to.emit(devOpsRegistryInstance, "PipelineRejected").withArgs(unregistered1.address);
+
+        expect(await devOpsRegistryInstance.pipelineProposalRejected(unregistered1.address)).to.equal(true);
+        expect(await devOpsRegistryInstance.pipelines(unregistered1.address)).to.equal(false);
+        // a rejected candidate may be nominated again
+        await expect(devOpsRegistryInstance.connect(voter1).nominatePipeline(unregistered1.address)).not.to.be.reverted;
+    });
+
+    it("should release a pipeline", async function() {
+        const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
+        await nominatePipeline(devOpsRegistryInstance, [voter1, voter2, voter3], unregistered1.address);
+
+        await expect(devOpsRegistryInstance.connect(voter1).releasePipeline(mainPipeline.address)).to.emit(devOpsRegistryInstance, "ReleasePipeline").withArgs(mainPipeline.address);
+        await expect(devOpsRegistryInstance.connect(voter1).votePipelineProposal(mainPipeline.address, true)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter2).votePipelineProposal(mainPipeline.address, true)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter3).votePipelineProposal(mainPipeline.address, true)).to.emit(devOpsRegistryInstance, "PipelineAccepted").withArgs(mainPipeline.address);
+
+        expect(await devOpsRegistryInstance.pipelines(mainPipeline.address)).to.equal(false);
+        expect(await devOpsRegistryInstance.mainPipeline()).to.equal(ethers.constants.AddressZero);
+        await expect(devOpsRegistryInstance.createVersionProposal(ethers.utils.hexZeroPad("0x5", 20))).to.be.revertedWith("Caller is not amongst the pipelines");
+
+        // the next accepted pipeline becomes the main pipeline
+        await nominatePipeline(devOpsRegistryInstance, [voter1, voter2, voter3], unregistered2.address);
+        expect(await devOpsRegistryInstance.mainPipeline()).to.equal(unregistered2.address);
+    });
+
+    it("should keep the main pipeline when another one is released", async function() {
+        const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
+        await nominatePipeline(devOpsRegistryInstance, [voter1, voter2, voter3], unregistered1.address);
+        expect(await devOpsRegistryInstance.mainPipeline()).to.equal(mainPipeline.address);
+
+        await expect(devOpsRegistryInstance.connect(voter1).releasePipeline(unregistered1.address)).not.to.be.reverted;
+        for (const voter of [voter1, voter2, voter3]) {
+            await expect(devOpsRegistryInstance.connect(voter).votePipelineProposal(unregistered1.address, true)).not.to.be.reverted;
+        }
+        expect(await devOpsRegistryInstance.pipelines(unregistered1.address)).to.equal(false);
+        expect(await devOpsRegistryInstance.mainPipeline()).to.equal(mainPipeline.address);
+    });
+
+    it("should keep the last pipeline", async function() {
+        const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
+        await expect(devOpsRegistryInstance.connect(voter1).releasePipeline(mainPipeline.address)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter1).votePipelineProposal(mainPipeline.address, true)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter2).votePipelineProposal(mainPipeline.address, true)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter3).votePipelineProposal(mainPipeline.address, true)).to.emit(devOpsRegistryInstance, "PipelineRejected").withArgs(mainPipeline.address);
+
+        expect(await devOpsRegistryInstance.pipelines(mainPipeline.address)).to.equal(true);
+    });
+
+    it("should reject invalid pipeline proposals and votes", async function() {
+        const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
+        await expect(devOpsRegistryInstance.connect(unregistered1).nominatePipeline(unregistered1.address)).to.be.revertedWith("Caller is not amongst the voters");
+        await expect(devOpsRegistryInstance.connect(voter1).nominatePipeline(mainPipeline.address)).to.be.revertedWith("Address is already amongst the pipelines");
+        await expect(devOpsRegistryInstance.connect(voter1).releasePipeline(unregistered1.address)).to.be.revertedWith("Address is not amongst the pipelines");
+        await expect(devOpsRegistryInstance.connect(voter1).votePipelineProposal(unregistered1.address, true)).to.be.revertedWith("This PipelineProposal is not open for votes");
+        await expect(devOpsRegistryInstance.pipelineProposalAccepted(unregistered1.address)).to.be.revertedWith("This PipelineProposal does not exist");
+
+        await expect(devOpsRegistryInstance.connect(voter1).nominatePipeline(unregistered1.address)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter2).nominatePipeline(unregistered1.address)).to.be.revertedWith("PipelineProposal with that address already exists");
+        await expect(devOpsRegistryInstance.connect(voter1).votePipelineProposal(unregistered1.address, true)).not.to.be.reverted;
+        await expect(devOpsRegistryInstance.connect(voter1).votePipelineProposal(unregistered1.address, true)).to.be.revertedWith("You have already voted on this PipelineProposal");
+    });
+});
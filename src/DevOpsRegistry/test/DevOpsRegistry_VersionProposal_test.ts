@@ -22,7 +22,7 @@ describe("DevOpsRegistry VersionProposal Tests", function() {
     it("should reject a VersionProposal", async function() {
         const { mainPipeline, voter1, voter2, voter3, unregistered1, unregistered2, devOpsRegistryInstance } = await deployDevOpsRegistryFixture();
         const versionProposalName = ethers.utils.hexZeroPad("0x5", 20);
-        await expect(devOpsRegistryInstance.connect(voter1).createVersionProposal(versionProposalName)).to.be.revertedWith("Caller is not registered as the main pipeline");
+        await expect(devOpsRegistryInstance.connect(voter1).createVersionProposal(versionProposalName)).to.be.revertedWith("Caller is not amongst the pipelines");
     });
 
     it("should reject a double VersionProposal", async function() {
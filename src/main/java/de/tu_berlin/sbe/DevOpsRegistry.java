@@ -51,12 +51,22 @@ public class DevOpsRegistry extends Contract {
 
     public static final String FUNC_MAINPIPELINE = "mainPipeline";
 
+    public static final String FUNC_NOMINATEPIPELINE = "nominatePipeline";
+
     public static final String FUNC_NOMINATEVOTER = "nominateVoter";
 
+    public static final String FUNC_PIPELINEPROPOSALACCEPTED = "pipelineProposalAccepted";
+
+    public static final String FUNC_PIPELINEPROPOSALREJECTED = "pipelineProposalRejected";
+
+    public static final String FUNC_PIPELINES = "pipelines";
+
     public static final String FUNC_QUORUMPROPOSALACCEPTED = "quorumProposalAccepted";
 
     public static final String FUNC_QUORUMPROPOSALREJECTED = "quorumProposalRejected";
 
+    public static final String FUNC_RELEASEPIPELINE = "releasePipeline";
+
     public static final String FUNC_RELEASEVOTER = "releaseVoter";
 
     public static final String FUNC_ROLEBINDINGPROPOSALACCEPTED = "roleBindingProposalAccepted";
@@ -73,6 +83,8 @@ public class DevOpsRegistry extends Contract {
 
     public static final String FUNC_VOTEDEPLOYMENTPROPOSAL = "voteDeploymentProposal";
 
+    public static final String FUNC_VOTEPIPELINEPROPOSAL = "votePipelineProposal";
+
     public static final String FUNC_VOTEQUORUMPROPOSAL = "voteQuorumProposal";
 
     public static final String FUNC_VOTEROLEBINDINGPROPOSAL = "voteRoleBindingProposal";
@@ -82,29 +94,51 @@ public class DevOpsRegistry extends Contract {
     public static final String FUNC_VOTERS = "voters";
 
     public static final Event DEPLOYMENTACCEPTED_EVENT = new Event("DeploymentAccepted",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
             }));
     ;
 
     public static final Event DEPLOYMENTPROPOSALCREATED_EVENT = new Event("DeploymentProposalCreated",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
             }));
     ;
 
     public static final Event DEPLOYMENTREJECTED_EVENT = new Event("DeploymentRejected",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
             }));
     ;
 
     public static final Event DEPLOYMENTVOTECAST_EVENT = new Event("DeploymentVoteCast",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
-            }, new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }, new TypeReference<Address>(true) {
             }, new TypeReference<Bool>() {
             }));
     ;
 
+    public static final Event NOMINATEPIPELINE_EVENT = new Event("NominatePipeline",
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }));
+    ;
+
     public static final Event NOMINATEVOTER_EVENT = new Event("NominateVoter",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }));
+    ;
+
+    public static final Event PIPELINEACCEPTED_EVENT = new Event("PipelineAccepted",
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }));
+    ;
+
+    public static final Event PIPELINEREJECTED_EVENT = new Event("PipelineRejected",
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }));
+    ;
+
+    public static final Event PIPELINEVOTECAST_EVENT = new Event("PipelineVoteCast",
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }, new TypeReference<Address>(true) {
+            }, new TypeReference<Bool>() {
             }));
     ;
 
@@ -117,18 +151,23 @@ public class DevOpsRegistry extends Contract {
     ;
 
     public static final Event QUORUMVOTECAST_EVENT = new Event("QuorumVoteCast",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
             }, new TypeReference<Bool>() {
             }));
     ;
 
+    public static final Event RELEASEPIPELINE_EVENT = new Event("ReleasePipeline",
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }));
+    ;
+
     public static final Event RELEASEVOTER_EVENT = new Event("ReleaseVoter",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
             }));
     ;
 
     public static final Event ROLEBINDINGACCEPTED_EVENT = new Event("RoleBindingAccepted",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
             }));
     ;
 
@@ -138,24 +177,24 @@ public class DevOpsRegistry extends Contract {
     ;
 
     public static final Event ROLEBINDINGREJECTED_EVENT = new Event("RoleBindingRejected",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
             }));
     ;
 
     public static final Event ROLEBINDINGVOTECAST_EVENT = new Event("RoleBindingVoteCast",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
-            }, new TypeReference<Address>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }, new TypeReference<Address>(true) {
             }, new TypeReference<Bool>() {
             }));
     ;
 
     public static final Event VERSIONACCEPTED_EVENT = new Event("VersionAccepted",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Bytes20>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Bytes20>(true) {
             }));
     ;
 
     public static final Event VERSIONPROPOSALCREATED_EVENT = new Event("VersionProposalCreated",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Bytes20>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Bytes20>(true) {
             }));
     ;
 
@@ -165,13 +204,13 @@ public class DevOpsRegistry extends Contract {
     ;
 
     public static final Event VERSIONREJECTED_EVENT = new Event("VersionRejected",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Bytes20>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Bytes20>(true) {
             }));
     ;
 
     public static final Event VERSIONVOTECAST_EVENT = new Event("VersionVoteCast",
-            Arrays.<TypeReference<?>>asList(new TypeReference<Address>() {
-            }, new TypeReference<Bytes20>() {
+            Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {
+            }, new TypeReference<Bytes20>(true) {
             }, new TypeReference<Bool>() {
             }));
     ;
@@ -258,6 +297,14 @@ public class DevOpsRegistry extends Contract {
         return executeRemoteCallSingleValueReturn(function, String.class);
     }
 
+    public RemoteFunctionCall<TransactionReceipt> nominatePipeline(String candidate) {
+        final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(
+                FUNC_NOMINATEPIPELINE,
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, candidate)),
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallTransaction(function);
+    }
+
     public RemoteFunctionCall<TransactionReceipt> nominateVoter(String candidate) {
         final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(
                 FUNC_NOMINATEVOTER,
@@ -266,6 +313,30 @@ public class DevOpsRegistry extends Contract {
         return executeRemoteCallTransaction(function);
     }
 
+    public RemoteFunctionCall<Boolean> pipelineProposalAccepted(String candidate) {
+        final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(FUNC_PIPELINEPROPOSALACCEPTED,
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, candidate)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {
+                }));
+        return executeRemoteCallSingleValueReturn(function, Boolean.class);
+    }
+
+    public RemoteFunctionCall<Boolean> pipelineProposalRejected(String candidate) {
+        final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(FUNC_PIPELINEPROPOSALREJECTED,
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, candidate)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {
+                }));
+        return executeRemoteCallSingleValueReturn(function, Boolean.class);
+    }
+
+    public RemoteFunctionCall<Boolean> pipelines(String param0) {
+        final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(FUNC_PIPELINES,
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, param0)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {
+                }));
+        return executeRemoteCallSingleValueReturn(function, Boolean.class);
+    }
+
     public RemoteFunctionCall<Boolean> quorumProposalAccepted() {
         final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(FUNC_QUORUMPROPOSALACCEPTED,
                 Arrays.<Type>asList(),
@@ -282,6 +353,14 @@ public class DevOpsRegistry extends Contract {
         return executeRemoteCallSingleValueReturn(function, Boolean.class);
     }
 
+    public RemoteFunctionCall<TransactionReceipt> releasePipeline(String candidate) {
+        final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(
+                FUNC_RELEASEPIPELINE,
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, candidate)),
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallTransaction(function);
+    }
+
     public RemoteFunctionCall<TransactionReceipt> releaseVoter(String candidate) {
         final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(
                 FUNC_RELEASEVOTER,
@@ -347,6 +426,15 @@ public class DevOpsRegistry extends Contract {
         return executeRemoteCallTransaction(function);
     }
 
+    public RemoteFunctionCall<TransactionReceipt> votePipelineProposal(String candidate, Boolean accept) {
+        final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(
+                FUNC_VOTEPIPELINEPROPOSAL,
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.Address(160, candidate),
+                new org.web3j.abi.datatypes.Bool(accept)),
+                Collections.<TypeReference<?>>emptyList());
+        return executeRemoteCallTransaction(function);
+    }
+
     public RemoteFunctionCall<TransactionReceipt> voteQuorumProposal(Boolean accept) {
         final org.web3j.abi.datatypes.Function function = new org.web3j.abi.datatypes.Function(
                 FUNC_VOTEQUORUMPROPOSAL,
@@ -0,0 +1,250 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.security.MasterToSlaveCallable;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.web3j.protocol.Web3j;
+
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the JSON-RPC work of a build step that needs no key on the agent of the build: transaction simulations,
+ * receipt waits, waiting for the outcome of proposals and the first attempt of the webhook calls. Signing, the
+ * {@link TransactionJournal} and the {@link WebhookOutbox} stay on the controller, which only sends the signed
+ * transactions and reads each receipt once.
+ * <p>
+ * The agent reads the proposal states directly instead of following the logs with the shared {@link RegistryWatcher},
+ * so the node sees more requests in total, but they come from the agents. Every callable carries the rate limit of the
+ * {@link NodeConfiguration}, which the {@link RpcRateLimiter} of the agent takes before the first request; each agent
+ * counts its own requests against it.
+ */
+public final class AgentRpc {
+    private final VirtualChannel channel;
+    private final String nodeUrl;
+    private final int requestsPerSecond;
+    private final int burst;
+
+    private AgentRpc(VirtualChannel channel, String nodeUrl, int requestsPerSecond, int burst) {
+        this.channel = channel;
+        this.nodeUrl = nodeUrl;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * @param onAgent   whether the step is configured to read the chain from the agent
+     * @param workspace workspace of the build
+     * @param nodeUrl   URL of the Ethereum node
+     * @return the agent to run the reads on, {@code null} to run them on the controller
+     */
+    @CheckForNull
+    public static AgentRpc forBuild(boolean onAgent, FilePath workspace, String nodeUrl, TaskListener listener) {
+        if (!onAgent) {
+            return null;
+        }
+        if (!workspace.isRemote() || workspace.getChannel() == null) {
+            listener.getLogger().println("The build runs on the controller, reading the chain from the controller");
+            return null;
+        }
+        listener.getLogger().println("Reading the chain from the agent, signing on the controller");
+        NodeConfiguration configuration = NodeConfiguration.get();
+        return new AgentRpc(workspace.getChannel(), nodeUrl, configuration.getRequestsPerSecond(), configuration.getBurst());
+    }
+
+    String getNodeUrl() {
+        return nodeUrl;
+    }
+
+    <V> V call(MasterToSlaveCallable<V, IOException> callable) throws IOException, InterruptedException {
+        return channel.call(new RateLimited<>(callable, requestsPerSecond, burst));
+    }
+
+    /**
+     * @see TransactionPreflight#simulate
+     */
+    public String simulate(String from, String to, String data) throws IOException, InterruptedException {
+        return call(new Simulation(nodeUrl, from, to, data));
+    }
+
+    /**
+     * Waits on the agent until {@code required} of the proposals are accepted, that cannot happen any more, all are
+     * decided or the timeout passed.
+     *
+     * @param version  {@code true} for VersionProposals named by hex git commit hashes, {@code false} for
+     *                 DeploymentProposals named by contract addresses
+     * @param subjects names of the proposals
+     * @param timeout  how long to wait, zero waits forever
+     * @return the outcomes of the decided proposals
+     */
+    public Map<String, ProposalOutcome> awaitOutcomes(String registryAddress, boolean version, List<String> subjects, int required, Duration timeout)
+            throws IOException, InterruptedException {
+        return call(new OutcomeWait(nodeUrl, registryAddress, version, subjects, required, timeout.toMillis(),
+                TimeUnit.SECONDS.toMillis(RegistryWatcher.POLL_INTERVAL)));
+    }
+
+    /**
+     * Calls the webhooks once each from the agent, all at the same time.
+     *
+     * @param urls   webhook targets with the query string
+     * @param origin the build making the calls, for their delivery keys
+     * @return the HTTP status per URL, {@code -1} if the call failed without one
+     */
+    public Map<String, Integer> callWebhooks(List<String> urls, String origin) throws IOException, InterruptedException {
+        return call(new WebhookCalls(urls, origin, WebhookOutbox.TIMEOUT_MILLIS));
+    }
+
+    /**
+     * Configures the {@link RpcRateLimiter} of the agent before running the callable.
+     */
+    static final class RateLimited<V> extends MasterToSlaveCallable<V, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final MasterToSlaveCallable<V, IOException> callable;
+        private final int requestsPerSecond;
+        private final int burst;
+
+        RateLimited(MasterToSlaveCallable<V, IOException> callable, int requestsPerSecond, int burst) {
+            this.callable = callable;
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+        }
+
+        @Override
+        public V call() throws IOException {
+            // requests from builds are never shed, so only the rate and the burst matter on the agent
+            RpcRateLimiter.get().configure(requestsPerSecond, burst, 0, 0);
+            return callable.call();
+        }
+    }
+
+    private static final class Simulation extends MasterToSlaveCallable<String, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final String nodeUrl;
+        private final String from;
+        private final String to;
+        private final String data;
+
+        Simulation(String nodeUrl, String from, String to, String data) {
+            this.nodeUrl = nodeUrl;
+            this.from = from;
+            this.to = to;
+            this.data = data;
+        }
+
+        @Override
+        public String call() throws IOException {
+            return TransactionPreflight.simulate(Web3jClients.get(nodeUrl), from, to, data);
+        }
+    }
+
+    private static final class OutcomeWait extends MasterToSlaveCallable<Map<String, ProposalOutcome>, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final String nodeUrl;
+        private final String registryAddress;
+        private final boolean version;
+        private final List<String> subjects;
+        private final int required;
+        private final long timeoutMillis;
+        private final long pollMillis;
+
+        OutcomeWait(String nodeUrl, String registryAddress, boolean version, List<String> subjects, int required, long timeoutMillis, long pollMillis) {
+            this.nodeUrl = nodeUrl;
+            this.registryAddress = registryAddress;
+            this.version = version;
+            this.subjects = new ArrayList<>(subjects);
+            this.required = required;
+            this.timeoutMillis = timeoutMillis;
+            this.pollMillis = pollMillis;
+        }
+
+        @Override
+        public Map<String, ProposalOutcome> call() throws IOException {
+            Web3j web3j = Web3jClients.get(nodeUrl);
+            long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+            Map<String, ProposalOutcome> outcomes = new LinkedHashMap<>();
+            while (true) {
+                int accepted = 0;
+                int rejected = 0;
+                for (String subject : subjects) {
+                    ProposalOutcome outcome = outcomes.get(subject);
+                    if (outcome == null) {
+                        outcome = outcome(web3j, subject);
+                        if (outcome != null) {
+                            outcomes.put(subject, outcome);
+                        }
+                    }
+                    if (outcome == ProposalOutcome.ACCEPTED) {
+                        accepted++;
+                    } else if (outcome == ProposalOutcome.REJECTED) {
+                        rejected++;
+                    }
+                }
+                if (accepted >= required || subjects.size() - rejected < required || outcomes.size() == subjects.size()
+                        || System.currentTimeMillis() >= deadline) {
+                    return outcomes;
+                }
+                try {
+                    Thread.sleep(Math.min(pollMillis, Math.max(1, deadline - System.currentTimeMillis())));
+                } catch (InterruptedException e) {
+                    throw (InterruptedIOException) new InterruptedIOException("Interrupted while waiting for the proposals").initCause(e);
+                }
+            }
+        }
+
+        private ProposalOutcome outcome(Web3j web3j, String subject) throws IOException {
+            if (!version) {
+                return TransactionPreflight.deploymentOutcome(web3j, registryAddress, subject);
+            }
+            try {
+                return TransactionPreflight.versionOutcome(web3j, registryAddress, Hex.decodeHex(subject));
+            } catch (DecoderException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static final class WebhookCalls extends MasterToSlaveCallable<Map<String, Integer>, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> urls;
+        private final String origin;
+        private final int timeoutMillis;
+
+        WebhookCalls(List<String> urls, String origin, int timeoutMillis) {
+            this.urls = new ArrayList<>(urls);
+            this.origin = origin;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public Map<String, Integer> call() {
+            Map<String, CompletableFuture<Integer>> calls = new LinkedHashMap<>();
+            for (String url : urls) {
+                calls.put(url, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return WebhookOutbox.call(url, WebhookOutbox.key(url, origin), timeoutMillis);
+                    } catch (IOException | RuntimeException e) {
+                        return -1;
+                    }
+                }, EthOpsExecutor.get()));
+            }
+            Map<String, Integer> statuses = new LinkedHashMap<>();
+            calls.forEach((url, call) -> statuses.put(url, call.join()));
+            return statuses;
+        }
+    }
+}
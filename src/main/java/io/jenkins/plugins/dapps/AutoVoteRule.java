@@ -0,0 +1,162 @@
+package io.jenkins.plugins.dapps;
+
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import jenkins.model.Jenkins;
+import org.jetbrains.annotations.NotNull;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.verb.POST;
+import org.web3j.crypto.WalletUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Policy of the {@link AutoVoter}: vote on the proposals of a DevOpsRegistry according to the result of a job on
+ * this controller.
+ * <p>
+ * A VersionProposal is matched with the build of the job whose {@code GIT_COMMIT} is the proposed commit, a
+ * DeploymentProposal with the build whose {@code CONTRACT_ADDRESS} lists the proposed contract. A successful build is
+ * voted for, a failed one against if {@link #isRejectOnFailure()}. Without a finished build there is no vote yet.
+ */
+public class AutoVoteRule extends AbstractDescribableImpl<AutoVoteRule> {
+    /**
+     * Builds of the job searched for the proposal, newest first.
+     */
+    static final int MAX_BUILDS = 100;
+
+    private final String contractAddress;
+    private final String credentialsId;
+    private final String operationType;
+    private final String jobFullName;
+    private boolean rejectOnFailure;
+
+    @DataBoundConstructor
+    public AutoVoteRule(String contractAddress, String credentialsId, String operationType, String jobFullName) {
+        this.contractAddress = contractAddress;
+        this.credentialsId = credentialsId;
+        this.operationType = operationType;
+        this.jobFullName = jobFullName;
+    }
+
+    public String getContractAddress() {
+        return contractAddress;
+    }
+
+    public String getCredentialsId() {
+        return credentialsId;
+    }
+
+    /**
+     * @return {@code versionProposal} or {@code deploymentProposal}, like the voter builder
+     */
+    public String getOperationType() {
+        return operationType;
+    }
+
+    public String getJobFullName() {
+        return jobFullName;
+    }
+
+    public boolean isRejectOnFailure() {
+        return rejectOnFailure;
+    }
+
+    @DataBoundSetter
+    public void setRejectOnFailure(boolean rejectOnFailure) {
+        this.rejectOnFailure = rejectOnFailure;
+    }
+
+    /**
+     * @param subject proposed git commit hash or contract address
+     * @return {@code true} to accept, {@code false} to reject, {@code null} to not vote (yet)
+     */
+    Boolean decide(String subject) throws IOException, InterruptedException {
+        // called from background threads without a user, the rule was configured by an administrator
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            Job<?, ?> job = Jenkins.get().getItemByFullName(jobFullName, Job.class);
+            if (job == null) {
+                return null;
+            }
+            String variable = operationType.equals("deploymentProposal") ? "CONTRACT_ADDRESS" : "GIT_COMMIT";
+            int searched = 0;
+            for (Run<?, ?> run = job.getLastBuild(); run != null && searched < MAX_BUILDS; run = run.getPreviousBuild(), searched++) {
+                if (run.isBuilding()) {
+                    continue;
+                }
+                EnvVars env = run.getEnvironment(TaskListener.NULL);
+                String value = env.get(variable);
+                if (value != null && Arrays.stream(value.split("\\s*,\\s*")).anyMatch(subject::equalsIgnoreCase)) {
+                    if (run.getResult() == Result.SUCCESS) {
+                        return true;
+                    }
+                    return rejectOnFailure ? Boolean.FALSE : null;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<AutoVoteRule> {
+        public ListBoxModel doFillCredentialsIdItems(@QueryParameter String credentialsId) {
+            StandardListBoxModel result = new StandardListBoxModel();
+            if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
+                return result.includeCurrentValue(credentialsId);
+            }
+            return result
+                    .includeEmptyValue()
+                    .includeMatchingAs(ACL.SYSTEM, Jenkins.get(), EthereumPrivateKey.class, Collections.emptyList(), CredentialsMatchers.instanceOf(EthereumPrivateKey.class))
+                    .includeCurrentValue(credentialsId);
+        }
+
+        public ListBoxModel doFillOperationTypeItems() {
+            ListBoxModel items = new ListBoxModel();
+            items.add(Messages.AutoVoteRule_versionProposal(), "versionProposal");
+            items.add(Messages.AutoVoteRule_deploymentProposal(), "deploymentProposal");
+            return items;
+        }
+
+        @POST
+        public FormValidation doCheckContractAddress(@QueryParameter String value) {
+            if (!WalletUtils.isValidAddress(value)) {
+                return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidAddress());
+            }
+            if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
+                return FormValidation.ok();
+            }
+            return RegistryValidation.checkRegistry(NodeConfiguration.get().getNodeUrl(), value);
+        }
+
+        public FormValidation doCheckJobFullName(@QueryParameter String value) {
+            if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
+                return FormValidation.ok();
+            }
+            if (Jenkins.get().getItemByFullName(value, Job.class) == null) {
+                return FormValidation.error(Messages.AutoVoteRule_DescriptorImpl_errors_noSuchJob(value));
+            }
+            return FormValidation.ok();
+        }
+
+        @NotNull
+        @Override
+        public String getDisplayName() {
+            return Messages.AutoVoteRule_DescriptorImpl_DisplayName();
+        }
+    }
+}
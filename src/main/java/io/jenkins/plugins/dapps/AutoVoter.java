@@ -0,0 +1,256 @@
+package io.jenkins.plugins.dapps;
+
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import de.tu_berlin.sbe.DevOpsRegistry;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.security.ACL;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import net.sf.json.JSONObject;
+import org.apache.commons.codec.binary.Hex;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.tx.gas.ContractGasProvider;
+import org.web3j.tx.gas.DefaultGasProvider;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Votes on new proposals from within the controller according to {@link AutoVoteRule rules}, without a webhook and
+ * a voter build per vote.
+ * <p>
+ * The rules are evaluated as soon as the {@link RegistryWatcher} reports a new proposal. A proposal whose build has
+ * not finished yet is looked at again every {@code retryInterval} seconds for {@code retryMinutes} minutes. Votes
+ * are broadcast with the {@link PipelinedTransactionManager} of the voter key without waiting for receipts, so the
+ * votes decided after one look at the chain go out back to back with consecutive nonces. Each is still a transaction
+ * of its own; whether they are mined in the same block is up to the network.
+ * <p>
+ * The last block seen per registry is saved with the configuration, at most every {@code saveInterval} seconds. After
+ * a restart the proposals created since then are evaluated as well, see {@link RegistryWatcher#addListener(
+ * RegistryWatcher.Listener, BigInteger)}.
+ */
+@Extension
+public class AutoVoter extends GlobalConfiguration implements RegistryWatcher.Listener {
+    private static final Logger LOGGER = Logger.getLogger(AutoVoter.class.getName());
+
+    static final long RETRY_INTERVAL = SystemProperties.getLong(AutoVoter.class.getName() + ".retryInterval", 60L);
+
+    static final long RETRY_MINUTES = SystemProperties.getLong(AutoVoter.class.getName() + ".retryMinutes", 60L);
+
+    static final long SAVE_INTERVAL = SystemProperties.getLong(AutoVoter.class.getName() + ".saveInterval", 60L);
+
+    private List<AutoVoteRule> rules = new ArrayList<>();
+
+    /**
+     * Last block seen per lower case registry address.
+     */
+    private Map<String, Long> lastBlocks = new ConcurrentHashMap<>();
+
+    private final transient List<RegistryWatcher> watchers = new ArrayList<>();
+    private final transient Map<String, Credentials> signers = new ConcurrentHashMap<>();
+    // registries whose proposals since the last saved block have been reported
+    private final transient Set<String> caughtUp = ConcurrentHashMap.newKeySet();
+    private transient volatile long lastSave;
+
+    /**
+     * @return the singleton instance
+     */
+    public static AutoVoter get() {
+        return ExtensionList.lookupSingleton(AutoVoter.class);
+    }
+
+    public AutoVoter() {
+        load();
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void startWatching() {
+        // reading the chain head must not delay the startup
+        Timer.get().submit(() -> get().watch());
+    }
+
+    public List<AutoVoteRule> getRules() {
+        return rules;
+    }
+
+    @DataBoundSetter
+    public void setRules(List<AutoVoteRule> rules) {
+        this.rules = rules != null ? new ArrayList<>(rules) : new ArrayList<>();
+        save();
+        signers.clear();
+        Timer.get().submit(this::watch);
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        if (!json.containsKey("rules")) {
+            // the last rule was deleted, the form does not submit an empty list
+            setRules(null);
+        }
+        req.bindJSON(this, json);
+        return true;
+    }
+
+    private synchronized void watch() {
+        for (RegistryWatcher watcher : watchers) {
+            watcher.removeListener(this);
+        }
+        watchers.clear();
+        caughtUp.clear();
+        String nodeUrl = NodeConfiguration.get().getNodeUrl();
+        for (AutoVoteRule rule : rules) {
+            RegistryWatcher watcher = RegistryWatcher.forRegistry(nodeUrl, rule.getContractAddress());
+            if (!watchers.contains(watcher)) {
+                watchers.add(watcher);
+                String registry = watcher.getRegistryAddress().toLowerCase(Locale.ROOT);
+                Long lastBlock = lastBlocks.get(registry);
+                if (lastBlock == null) {
+                    watcher.addListener(this);
+                    caughtUp.add(registry);
+                    continue;
+                }
+                try {
+                    watcher.addListener(this, BigInteger.valueOf(lastBlock + 1));
+                    caughtUp.add(registry);
+                } catch (IOException | RuntimeException e) {
+                    // keep the saved block, so that the next start looks at these blocks again
+                    LOGGER.log(Level.WARNING, "Could not read the proposals created in " + registry + " since block " + lastBlock, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onBlocksFollowed(RegistryWatcher watcher, BigInteger toBlock) {
+        String registry = watcher.getRegistryAddress().toLowerCase(Locale.ROOT);
+        if (!caughtUp.contains(registry)) {
+            return;
+        }
+        lastBlocks.merge(registry, toBlock.longValueExact(), Math::max);
+        long now = System.currentTimeMillis();
+        if (now - lastSave > TimeUnit.SECONDS.toMillis(SAVE_INTERVAL)) {
+            lastSave = now;
+            save();
+        }
+    }
+
+    @Override
+    public void onVersionProposalCreated(RegistryWatcher watcher, byte[] name) {
+        proposalCreated(watcher, "versionProposal", Hex.encodeHexString(name));
+    }
+
+    @Override
+    public void onDeploymentProposalCreated(RegistryWatcher watcher, String newDeployment) {
+        proposalCreated(watcher, "deploymentProposal", newDeployment);
+    }
+
+    private void proposalCreated(RegistryWatcher watcher, String operationType, String subject) {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(RETRY_MINUTES);
+        for (AutoVoteRule rule : rules) {
+            if (rule.getOperationType().equals(operationType) && rule.getContractAddress().equalsIgnoreCase(watcher.getRegistryAddress())) {
+                // the watcher thread follows all registries, evaluate elsewhere
+                EthOpsExecutor.get().execute(() -> evaluate(watcher, rule, subject, deadline));
+            }
+        }
+    }
+
+    private void evaluate(RegistryWatcher watcher, AutoVoteRule rule, String subject, long deadline) {
+        try {
+            Boolean accept = rule.decide(subject);
+            if (accept != null) {
+                vote(watcher, rule, subject, accept);
+            } else if (deadline - System.nanoTime() > 0) {
+                Timer.get().schedule(() -> EthOpsExecutor.get().execute(() -> evaluate(watcher, rule, subject, deadline)), RETRY_INTERVAL, TimeUnit.SECONDS);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not vote on " + subject + " in " + rule.getContractAddress(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void vote(RegistryWatcher watcher, AutoVoteRule rule, String subject, boolean accept) throws IOException {
+        String nodeUrl = NodeConfiguration.get().getNodeUrl();
+        String registryAddress = watcher.getRegistryAddress();
+        Web3j web3 = Web3jClients.get(nodeUrl);
+        ContractGasProvider gasProvider = new DefaultGasProvider();
+        PipelinedTransactionManager transactionManager = PipelinedTransactionManager.get(nodeUrl, signer(rule.getCredentialsId()));
+
+        String data;
+        String function;
+        if (rule.getOperationType().equals("versionProposal")) {
+            byte[] name = decodeHex(subject);
+            if (watcher.versionOutcome(name) != null) {
+                return;
+            }
+            data = DevOpsRegistryCodec.encodeVoteVersionProposal(name, accept);
+            function = DevOpsRegistry.FUNC_VOTEVERSIONPROPOSAL;
+        } else {
+            if (watcher.deploymentOutcome(subject) != null) {
+                return;
+            }
+            data = DevOpsRegistryCodec.encodeVoteDeploymentProposal(subject, accept);
+            function = DevOpsRegistry.FUNC_VOTEDEPLOYMENTPROPOSAL;
+        }
+
+        String revertReason = TransactionPreflight.simulate(web3, transactionManager.getFromAddress(), registryAddress, data);
+        if (revertReason != null) {
+            LOGGER.log(Level.FINE, "Not voting on {0}: {1}", new Object[]{subject, revertReason});
+            return;
+        }
+        transactionManager.submit(registryAddress, data, gasProvider.getGasPrice(function), gasProvider.getGasLimit(function))
+                .whenComplete((receipt, e) -> {
+                    if (e != null) {
+                        LOGGER.log(Level.WARNING, "Vote on " + subject + " in " + registryAddress + " failed", e);
+                    }
+                });
+        LOGGER.log(Level.INFO, "Voted {0} {1} in {2}", new Object[]{accept ? "for" : "against", subject, registryAddress});
+    }
+
+    private Credentials signer(String credentialsId) throws IOException {
+        Credentials credentials = signers.get(credentialsId);
+        if (credentials != null) {
+            return credentials;
+        }
+        EthereumPrivateKey ethereumPrivateKey = CredentialsMatchers.firstOrNull(
+                CredentialsProvider.lookupCredentials(EthereumPrivateKey.class, Jenkins.get(), ACL.SYSTEM),
+                CredentialsMatchers.withId(credentialsId));
+        if (ethereumPrivateKey == null) {
+            throw new IOException("Credentials " + credentialsId + " not found");
+        }
+        try {
+            credentials = Credentials.create(ethereumPrivateKey.getPrivateKey().getPlainText());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        signers.put(credentialsId, credentials);
+        return credentials;
+    }
+
+    private static byte[] decodeHex(String hex) throws IOException {
+        try {
+            return Hex.decodeHex(hex);
+        } catch (org.apache.commons.codec.DecoderException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import de.tu_berlin.sbe.DevOpsRegistry;
+import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
@@ -23,28 +24,43 @@ import org.jenkinsci.Symbol;
 import org.jetbrains.annotations.NotNull;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.verb.POST;
 import org.web3j.crypto.Credentials;
 import org.web3j.crypto.WalletUtils;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.tx.gas.DefaultGasProvider;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeoutException;
 
 public class DappMainBuilder extends Builder implements SimpleBuildStep {
     private String credentialsId;
+    private String poolCredentialsIds;
     private String operationType;
     private String contractAddress;
     private String webhookTargets;
+    private long timeoutMinutes;
+    private boolean awaitDeployments;
+    private int requiredDeployments;
+    private boolean earlyWebhooks;
+    private boolean runOnAgent;
 
     @DataBoundConstructor
     public DappMainBuilder(String credentialsId, String operationType, String contractType, String initialVoters, long initialVersionQuorum, long initialRoleBindingQuorum, String contractAddress, String webhookTargets) {
@@ -72,7 +88,7 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
             throw new RuntimeException(e);
         }
 
-        Web3j web3 = Web3j.build(new HttpService(nodeUrl));
+        Web3j web3 = Web3jClients.get(nodeUrl);
 
         if (contractType.equals("bootstrap")) {
             List<String> initialVotersList = List.of(initialVoters.split("\\s*,\\s*"));
@@ -81,7 +97,7 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
             ContractGasProvider gasProvider = new DefaultGasProvider();
 
             try {
-                DevOpsRegistry devOpsRegistry = DevOpsRegistry.deploy(web3, credentials, gasProvider, initialVotersList, initialVersionQuorumBigInt, initialRoleBindingQuorumBigInt).send();
+                DevOpsRegistry devOpsRegistry = DevOpsRegistry.deploy(web3, PipelinedTransactionManager.get(nodeUrl, credentials), gasProvider, initialVotersList, initialVersionQuorumBigInt, initialRoleBindingQuorumBigInt).send();
                 String devOpsRegistryAddress = devOpsRegistry.getContractAddress();
                 this.contractAddress = devOpsRegistryAddress;
                 ((DappMainBuilder.DescriptorImpl) getDescriptor()).setDevOpsRegistryAddress(devOpsRegistryAddress);
@@ -104,6 +120,19 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
         return credentialsId;
     }
 
+    public String getPoolCredentialsIds() {
+        return poolCredentialsIds;
+    }
+
+    /**
+     * @param poolCredentialsIds comma separated IDs of further keys amongst the pipelines of the registry; proposals
+     *                           are spread over these and the main key
+     */
+    @DataBoundSetter
+    public void setPoolCredentialsIds(String poolCredentialsIds) {
+        this.poolCredentialsIds = poolCredentialsIds;
+    }
+
     public String getOperationType() {
         return operationType;
     }
@@ -116,32 +145,92 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
         return webhookTargets;
     }
 
+    public long getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    /**
+     * @param timeoutMinutes minutes to wait for the outcome of a proposal, 0 waits forever
+     */
+    @DataBoundSetter
+    public void setTimeoutMinutes(long timeoutMinutes) {
+        this.timeoutMinutes = timeoutMinutes;
+    }
+
+    public boolean isAwaitDeployments() {
+        return awaitDeployments;
+    }
+
+    /**
+     * @param awaitDeployments whether a deployment step waits for the outcome of its proposals
+     */
+    @DataBoundSetter
+    public void setAwaitDeployments(boolean awaitDeployments) {
+        this.awaitDeployments = awaitDeployments;
+    }
+
+    public int getRequiredDeployments() {
+        return requiredDeployments;
+    }
+
+    /**
+     * The registry keeps a single {@code applicationContract}, the contract of the DeploymentProposal accepted last.
+     * With more than one required deployment the build continues once enough are accepted, but which of them the
+     * registry names depends on the order of the deciding votes.
+     *
+     * @param requiredDeployments number of accepted contracts that let the build continue, 0 for all
+     */
+    @DataBoundSetter
+    public void setRequiredDeployments(int requiredDeployments) {
+        this.requiredDeployments = requiredDeployments;
+    }
+
+    public boolean isEarlyWebhooks() {
+        return earlyWebhooks;
+    }
+
+    /**
+     * @param earlyWebhooks whether the webhooks are called as soon as the proposals are broadcast instead of after they
+     *                      were mined; the voter steps wait briefly for proposals they cannot see yet
+     */
+    @DataBoundSetter
+    public void setEarlyWebhooks(boolean earlyWebhooks) {
+        this.earlyWebhooks = earlyWebhooks;
+    }
+
+    public boolean isRunOnAgent() {
+        return runOnAgent;
+    }
+
+    /**
+     * @param runOnAgent whether the reads, receipt waits and webhook calls run on the agent of the build, see
+     *                   {@link AgentRpc}
+     */
+    @DataBoundSetter
+    public void setRunOnAgent(boolean runOnAgent) {
+        this.runOnAgent = runOnAgent;
+    }
+
+    private Duration getTimeout() {
+        return Duration.ofMinutes(timeoutMinutes);
+    }
+
     @Override
     public void perform(@NotNull Run<?, ?> run, @NotNull FilePath workspace, EnvVars env, @NotNull Launcher launcher, TaskListener listener) throws InterruptedException, IOException {
         String nodeUrl = NodeConfiguration.get().getNodeUrl();
         String devOpsRegistryAddress = getContractAddress();
 
-        EthereumPrivateKey ethereumPrivateKey = CredentialsMatchers.firstOrNull(
-                CredentialsProvider.lookupCredentials(
-                        EthereumPrivateKey.class,
-                        Jenkins.get(),
-                        ACL.SYSTEM
-                ), CredentialsMatchers.withId(credentialsId));
-        if (ethereumPrivateKey == null) {
-            throw new RuntimeException("Credentials not found");
-        }
-
-        Credentials credentials = null;
-        try {
-            String privateKey = ethereumPrivateKey.getPrivateKey().getPlainText();
-            credentials = Credentials.create(privateKey);
-        } catch (IOException | InterruptedException e) {
-            throw new RuntimeException(e);
+        List<PipelinedTransactionManager> signers = new ArrayList<>();
+        signers.add(PipelinedTransactionManager.get(nodeUrl, lookupCredentials(credentialsId)));
+        if (poolCredentialsIds != null && !poolCredentialsIds.isBlank()) {
+            for (String poolCredentialsId : poolCredentialsIds.trim().split("\\s*,\\s*")) {
+                signers.add(PipelinedTransactionManager.get(nodeUrl, lookupCredentials(poolCredentialsId)));
+            }
         }
 
-        Web3j web3 = Web3j.build(new HttpService(nodeUrl));
+        Web3j web3 = Web3jClients.get(nodeUrl);
         ContractGasProvider contractGasProvider = new DefaultGasProvider();
-        DevOpsRegistry devOpsRegistry = DevOpsRegistry.load(devOpsRegistryAddress, web3, credentials, contractGasProvider);
+        AgentRpc agent = AgentRpc.forBuild(runOnAgent, workspace, nodeUrl, listener);
 
         listener.getLogger().println("Getting commit hash from environment");
         String gitCommitHash = env.get("GIT_COMMIT");
@@ -155,67 +244,251 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
                 throw new RuntimeException(e);
             }
 
-            try {
-                devOpsRegistry.createVersionProposal(gitCommitHashBytes).send();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+            RegistryWatcher watcher = RegistryWatcher.forRegistry(nodeUrl, devOpsRegistryAddress);
+            if (watcher.versionOutcome(gitCommitHashBytes) == ProposalOutcome.ACCEPTED) {
+                listener.getLogger().println("VersionProposal has already been accepted");
+                return;
             }
 
-            List<String> webhookTargetList = List.of(webhookTargets.split("\\s*,\\s*"));
-            for (String webhookTarget : webhookTargetList) {
-                String urlWithParameters = String.format("%s?token=%s&GIVEN_GIT_COMMIT=%s&VOTING_TYPE=version", webhookTarget, getContractAddress(), gitCommitHash);
-                listener.getLogger().println("Calling webhook URL: " + urlWithParameters);
-                URL url = new URL(urlWithParameters);
-                HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-                urlConnection.setRequestMethod("GET");
-                urlConnection.connect();
-                listener.getLogger().println(urlConnection.getResponseMessage());
-                urlConnection.disconnect();
-            }
-
-            while (true) {
-                Thread.sleep(60 * 1000);
-                listener.getLogger().println("Checking if VersionProposal is accepted or rejected");
-                boolean accepted = false;
-                try {
-                    accepted = devOpsRegistry.versionProposalAccepted(gitCommitHashBytes).send();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-                if (accepted) {
-                    return;
-                } else {
-                    boolean rejected = false;
-                    try {
-                        rejected = devOpsRegistry.versionProposalRejected(gitCommitHashBytes).send();
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
-                    if (rejected) {
-                        run.setResult(Result.FAILURE);
-                        throw new InterruptedException("VersionProposal was rejected");
+            PipelinedTransactionManager transactionManager = signer(signers, DevOpsRegistryCodec.encodeCreateVersionProposal(gitCommitHashBytes));
+            TransactionJournal.Entry submitted = null;
+            String revertReason = simulate(agent, web3, transactionManager.getFromAddress(), devOpsRegistryAddress, DevOpsRegistryCodec.encodeCreateVersionProposal(gitCommitHashBytes));
+            if (TransactionPreflight.VERSION_PROPOSAL_EXISTS.equals(revertReason)) {
+                listener.getLogger().println("VersionProposal already exists, not creating it again");
+            } else if (revertReason != null) {
+                throw new AbortException("Creating the VersionProposal would revert: " + revertReason);
+            } else {
+                submitted = TransactionAccelerator.submit(run, listener, transactionManager, "createVersionProposal", devOpsRegistryAddress,
+                        DevOpsRegistryCodec.encodeCreateVersionProposal(gitCommitHashBytes),
+                        contractGasProvider.getGasPrice(DevOpsRegistry.FUNC_CREATEVERSIONPROPOSAL), contractGasProvider.getGasLimit(DevOpsRegistry.FUNC_CREATEVERSIONPROPOSAL));
+            }
+            String parameters = String.format("token=%s&GIVEN_GIT_COMMIT=%s&VOTING_TYPE=version", getContractAddress(), gitCommitHash);
+            if (earlyWebhooks) {
+                callWebhooks(run, listener, agent, parameters, "version", List.of(gitCommitHash));
+            }
+            if (submitted != null) {
+                TransactionAccelerator.await(run, listener, web3, transactionManager, submitted, agent);
+            }
+            // a rejected outcome from an earlier proposal of this commit is no longer valid
+            watcher.versionProposalCreated(gitCommitHashBytes);
+            if (!earlyWebhooks) {
+                callWebhooks(run, listener, agent, parameters, "version", List.of(gitCommitHash));
+            }
+
+            listener.getLogger().println("Waiting for VersionProposal to be accepted or rejected");
+            ProposalOutcome outcome;
+            try {
+                if (agent != null) {
+                    outcome = agent.awaitOutcomes(devOpsRegistryAddress, true, List.of(gitCommitHash), 1, getTimeout()).get(gitCommitHash);
+                    if (outcome == null) {
+                        throw new TimeoutException();
                     }
+                } else {
+                    outcome = watcher.awaitVersionProposal(gitCommitHashBytes, getTimeout());
                 }
+            } catch (TimeoutException e) {
+                run.setResult(Result.FAILURE);
+                throw new AbortException("VersionProposal was not decided within " + timeoutMinutes + " minutes");
+            }
+            if (outcome == ProposalOutcome.REJECTED) {
+                run.setResult(Result.FAILURE);
+                throw new InterruptedException("VersionProposal was rejected");
             }
         } else if (operationType.equals("deploymentProposal")) {
-            listener.getLogger().println("Getting newly deployed contract address from environment");
-            String contractAddress = env.get("CONTRACT_ADDRESS");
-            listener.getLogger().println("Contract address: " + contractAddress);
+            listener.getLogger().println("Getting newly deployed contract addresses from environment");
+            List<String> contractAddresses = addressesFromEnvironment(env, "CONTRACT_ADDRESS");
+            listener.getLogger().println("Contract addresses: " + String.join(", ", contractAddresses));
+
+            RegistryWatcher watcher = RegistryWatcher.forRegistry(nodeUrl, devOpsRegistryAddress);
+            List<String> proposed = new ArrayList<>();
+            Map<TransactionJournal.Entry, PipelinedTransactionManager> submitted = new LinkedHashMap<>();
+            for (String contractAddress : contractAddresses) {
+                if (watcher.deploymentOutcome(contractAddress) == ProposalOutcome.ACCEPTED) {
+                    listener.getLogger().println("DeploymentProposal for " + contractAddress + " has already been accepted");
+                    continue;
+                }
+                proposed.add(contractAddress);
+                PipelinedTransactionManager transactionManager = signer(signers, DevOpsRegistryCodec.encodeCreateDeploymentProposal(contractAddress));
+                String revertReason = simulate(agent, web3, transactionManager.getFromAddress(), devOpsRegistryAddress, DevOpsRegistryCodec.encodeCreateDeploymentProposal(contractAddress));
+                if (TransactionPreflight.DEPLOYMENT_PROPOSAL_EXISTS.equals(revertReason)) {
+                    listener.getLogger().println("DeploymentProposal for " + contractAddress + " already exists, not creating it again");
+                } else if (revertReason != null) {
+                    throw new AbortException("Creating the DeploymentProposal for " + contractAddress + " would revert: " + revertReason);
+                } else {
+                    // consecutive nonces per key, all proposals are mined together
+                    submitted.put(TransactionAccelerator.submit(run, listener, transactionManager, "createDeploymentProposal", devOpsRegistryAddress,
+                            DevOpsRegistryCodec.encodeCreateDeploymentProposal(contractAddress),
+                            contractGasProvider.getGasPrice(DevOpsRegistry.FUNC_CREATEDEPLOYMENTPROPOSAL), contractGasProvider.getGasLimit(DevOpsRegistry.FUNC_CREATEDEPLOYMENTPROPOSAL)), transactionManager);
+                }
+            }
+            String parameters = String.format("token=%s&GIVEN_CONTRACT_ADDRESS=%s&GIVEN_GIT_COMMIT=%s&VOTING_TYPE=deployment", getContractAddress(), String.join(",", proposed), gitCommitHash);
+            if (earlyWebhooks && !proposed.isEmpty()) {
+                callWebhooks(run, listener, agent, parameters, "deployment", proposed);
+            }
+            for (Map.Entry<TransactionJournal.Entry, PipelinedTransactionManager> entry : submitted.entrySet()) {
+                TransactionAccelerator.await(run, listener, web3, entry.getValue(), entry.getKey(), agent);
+            }
+            for (String contractAddress : proposed) {
+                watcher.deploymentProposalCreated(contractAddress);
+            }
+            if (proposed.isEmpty()) {
+                return;
+            }
+            if (!earlyWebhooks) {
+                callWebhooks(run, listener, agent, parameters, "deployment", proposed);
+            }
 
-            try {
-                devOpsRegistry.createDeploymentProposal(contractAddress).send();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+            if (awaitDeployments) {
+                awaitDeploymentProposals(run, listener, agent, watcher, proposed, contractAddresses.size() - proposed.size());
+            }
+        }
+    }
+
+    /**
+     * @param variable environment variable with comma separated contract addresses
+     * @return the addresses
+     * @throws AbortException if the variable is not set or holds an invalid address
+     */
+    static List<String> addressesFromEnvironment(EnvVars env, String variable) throws AbortException {
+        String value = env.get(variable);
+        if (value == null || value.isBlank()) {
+            throw new AbortException(variable + " is not set, it has to name the contract addresses to propose (comma separated)");
+        }
+        List<String> addresses = List.of(value.trim().split("\\s*,\\s*"));
+        for (String address : addresses) {
+            if (!WalletUtils.isValidAddress(address)) {
+                throw new AbortException(variable + " contains an invalid address: " + address);
+            }
+        }
+        return addresses;
+    }
+
+    private static Credentials lookupCredentials(String credentialsId) throws IOException, InterruptedException {
+        EthereumPrivateKey ethereumPrivateKey = CredentialsMatchers.firstOrNull(
+                CredentialsProvider.lookupCredentials(
+                        EthereumPrivateKey.class,
+                        Jenkins.get(),
+                        ACL.SYSTEM
+                ), CredentialsMatchers.withId(credentialsId));
+        if (ethereumPrivateKey == null) {
+            throw new AbortException("Credentials " + credentialsId + " not found");
+        }
+        return Credentials.create(ethereumPrivateKey.getPrivateKey().getPlainText());
+    }
+
+    /**
+     * Picks the key for a call by its calldata, so that different proposals are spread over the keys and each key
+     * keeps its own nonce order, while the same proposal always gets the same key and a pending transaction of an
+     * earlier attempt is found in the journal again.
+     */
+    private static PipelinedTransactionManager signer(List<PipelinedTransactionManager> signers, String data) {
+        return signers.get(Math.floorMod(data.hashCode(), signers.size()));
+    }
+
+    private static String simulate(AgentRpc agent, Web3j web3, String from, String to, String data) throws IOException, InterruptedException {
+        return agent != null ? agent.simulate(from, to, data) : TransactionPreflight.simulate(web3, from, to, data);
+    }
+
+    /**
+     * Hands the webhook calls to the {@link WebhookOutbox}, which delivers them after the step went on. With an agent,
+     * the agent makes the first attempt and only the failed calls are queued.
+     *
+     * @param parameters query string for the voter jobs
+     * @param type       {@code version} or {@code deployment}
+     * @param subjects   proposed git commit hashes or contract addresses
+     */
+    private void callWebhooks(Run<?, ?> run, TaskListener listener, AgentRpc agent, String parameters, String type, List<String> subjects)
+            throws IOException, InterruptedException {
+        String origin = run.getExternalizableId();
+        List<String> urls = new ArrayList<>();
+        for (String webhookTarget : webhookTargets.split("\\s*,\\s*")) {
+            urls.add(webhookTarget + "?" + parameters);
+        }
+        if (agent != null) {
+            for (Map.Entry<String, Integer> call : agent.callWebhooks(urls, origin).entrySet()) {
+                int status = call.getValue();
+                if (status >= 0 && status < 400) {
+                    listener.getLogger().println("Called webhook URL from the agent: " + call.getKey());
+                } else if (status >= 0 && !WebhookOutbox.isRetryable(status)) {
+                    listener.getLogger().println("Webhook URL answered HTTP " + status + ", not calling it again: " + call.getKey());
+                } else {
+                    String reason = status < 0 ? "not reachable from the agent" : "HTTP " + status;
+                    WebhookOutbox.get().enqueueFailed(call.getKey(), origin, getContractAddress(), type, subjects, reason);
+                    listener.getLogger().println("Webhook URL failed from the agent (" + reason + "), queued it on the controller: " + call.getKey());
+                }
+            }
+            return;
+        }
+        for (String urlWithParameters : urls) {
+            if (WebhookOutbox.get().enqueue(urlWithParameters, origin, getContractAddress(), type, subjects)) {
+                listener.getLogger().println("Queued webhook URL: " + urlWithParameters);
+            } else {
+                listener.getLogger().println("Webhook URL is already queued: " + urlWithParameters);
+            }
+        }
+    }
+
+    /**
+     * Waits until {@link #getRequiredDeployments()} of the proposed contracts are accepted, or until that cannot
+     * happen any more.
+     *
+     * @param accepted number of contracts that were accepted before
+     */
+    private void awaitDeploymentProposals(Run<?, ?> run, TaskListener listener, AgentRpc agent, RegistryWatcher watcher, List<String> proposed, int accepted)
+            throws IOException, InterruptedException {
+        int total = proposed.size() + accepted;
+        int required = requiredDeployments > 0 ? Math.min(requiredDeployments, total) : total;
+        if (accepted >= required) {
+            return;
+        }
+        listener.getLogger().println("Waiting for " + (required - accepted) + " of " + proposed.size() + " DeploymentProposals to be accepted");
+
+        if (agent != null) {
+            Map<String, ProposalOutcome> outcomes = agent.awaitOutcomes(getContractAddress(), false, proposed, required - accepted, getTimeout());
+            int rejected = 0;
+            for (Map.Entry<String, ProposalOutcome> outcome : outcomes.entrySet()) {
+                listener.getLogger().println("DeploymentProposal for " + outcome.getKey() + " was " + outcome.getValue().name().toLowerCase(Locale.ROOT));
+                if (outcome.getValue() == ProposalOutcome.ACCEPTED) {
+                    accepted++;
+                } else {
+                    rejected++;
+                }
+            }
+            if (accepted >= required) {
+                return;
+            }
+            if (total - rejected < required) {
+                run.setResult(Result.FAILURE);
+                throw new InterruptedException(rejected + " of " + proposed.size() + " DeploymentProposals were rejected");
             }
+            throw new AbortException("DeploymentProposals were not decided within " + timeoutMinutes + " minutes");
+        }
 
-            List<String> webhookTargetList = List.of(webhookTargets.split("\\s*,\\s*"));
-            for (String webhookTarget : webhookTargetList) {
-                String urlWithParameters = String.format("%s?token=%s&GIVEN_CONTRACT_ADDRESS=%s&GIVEN_GIT_COMMIT=%s&VOTING_TYPE=deployment", webhookTarget, getContractAddress(), contractAddress, gitCommitHash);
-                URL url = new URL(urlWithParameters);
-                HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-                urlConnection.connect();
-                listener.getLogger().println(urlConnection.getResponseMessage());
-                urlConnection.disconnect();
+        BlockingQueue<Map.Entry<String, ProposalOutcome>> decided = new LinkedBlockingQueue<>();
+        List<CompletableFuture<ProposalOutcome>> waiters = new ArrayList<>();
+        try {
+            for (String contractAddress : proposed) {
+                CompletableFuture<ProposalOutcome> waiter = watcher.deploymentProposalOutcome(contractAddress, getTimeout());
+                waiters.add(waiter);
+                waiter.whenComplete((outcome, e) -> decided.add(new AbstractMap.SimpleEntry<>(contractAddress, outcome)));
+            }
+            int rejected = 0;
+            for (int i = 0; i < proposed.size() && accepted < required; i++) {
+                Map.Entry<String, ProposalOutcome> outcome = decided.take();
+                if (outcome.getValue() == null) {
+                    throw new AbortException("DeploymentProposals were not decided within " + timeoutMinutes + " minutes");
+                }
+                listener.getLogger().println("DeploymentProposal for " + outcome.getKey() + " was " + outcome.getValue().name().toLowerCase(Locale.ROOT));
+                if (outcome.getValue() == ProposalOutcome.ACCEPTED) {
+                    accepted++;
+                } else if (total - ++rejected < required) {
+                    run.setResult(Result.FAILURE);
+                    throw new InterruptedException(rejected + " of " + proposed.size() + " DeploymentProposals were rejected");
+                }
+            }
+        } finally {
+            for (CompletableFuture<ProposalOutcome> waiter : waiters) {
+                waiter.cancel(false);
             }
         }
     }
@@ -265,7 +538,8 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
 
         public FormValidation doCheckCredentialsId(
                 @AncestorInPath Item item, // (2)
-                @QueryParameter String value // (1)
+                @QueryParameter String value, // (1)
+                @QueryParameter String contractAddress
         ) throws IOException, InterruptedException {
             if (item == null) {
                 if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
@@ -280,6 +554,38 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
 //            if (value.startsWith("${") && value.endsWith("}")) { // (5)
 //                return FormValidation.warning("Cannot validate expression based credentials");
 //            }
+            return checkPipelineKey(value, contractAddress);
+        }
+
+        @POST
+        public FormValidation doCheckPoolCredentialsIds(
+                @AncestorInPath Item item,
+                @QueryParameter String value,
+                @QueryParameter String contractAddress
+        ) throws IOException, InterruptedException {
+            if (value == null || value.isBlank()) {
+                return FormValidation.ok();
+            }
+            if (item == null) {
+                if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
+                    return FormValidation.ok();
+                }
+            } else {
+                if (!item.hasPermission(Item.EXTENDED_READ)
+                        && !item.hasPermission(CredentialsProvider.USE_ITEM)) {
+                    return FormValidation.ok();
+                }
+            }
+            for (String poolCredentialsId : value.trim().split("\\s*,\\s*")) {
+                FormValidation validation = checkPipelineKey(poolCredentialsId, contractAddress);
+                if (validation.kind != FormValidation.Kind.OK) {
+                    return validation;
+                }
+            }
+            return FormValidation.ok();
+        }
+
+        private static FormValidation checkPipelineKey(String value, String contractAddress) throws IOException, InterruptedException {
             ListBoxModel credentialsList = CredentialsProvider.listCredentials(
                     EthereumPrivateKey.class,
                     Jenkins.get(),
@@ -310,13 +616,18 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
                 return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidPrivateKey());
             }
 
+            Credentials account;
             try {
-                Credentials.create(privateKey);
+                account = Credentials.create(privateKey);
             } catch (NumberFormatException e) {
                 return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidPrivateKey());
             }
 
-            return FormValidation.ok();
+            if (contractAddress == null || !WalletUtils.isValidAddress(contractAddress)) {
+                // no registry to check the key against yet
+                return FormValidation.ok();
+            }
+            return RegistryValidation.checkPipeline(NodeConfiguration.get().getNodeUrl(), contractAddress, account.getAddress());
         }
 
         public FormValidation doCheckInitialVersionQuorum(@QueryParameter String value) throws IOException, ServletException {
@@ -347,12 +658,30 @@ public class DappMainBuilder extends Builder implements SimpleBuildStep {
             return FormValidation.ok();
         }
 
-        public FormValidation doCheckContractAddress(@QueryParameter String value) throws IOException, ServletException {
+        public FormValidation doCheckRequiredDeployments(@QueryParameter int value) {
+            if (value < 0) {
+                return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidRequiredDeployments());
+            }
+            if (value > 1) {
+                return FormValidation.warning(Messages.DappMainBuilder_DescriptorImpl_warnings_severalDeployments());
+            }
+            return FormValidation.ok();
+        }
+
+        @POST
+        public FormValidation doCheckContractAddress(@AncestorInPath Item item, @QueryParameter String value) throws IOException, ServletException {
             if (!WalletUtils.isValidAddress(value)) {
                 return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidAddress());
             }
 
-            return FormValidation.ok();
+            if (item == null) {
+                if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
+                    return FormValidation.ok();
+                }
+            } else if (!item.hasPermission(Item.CONFIGURE)) {
+                return FormValidation.ok();
+            }
+            return RegistryValidation.checkRegistry(NodeConfiguration.get().getNodeUrl(), value);
         }
 
         public FormValidation doCheckInitialVoters(@QueryParameter String value) throws IOException, ServletException {
@@ -4,6 +4,7 @@ import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import de.tu_berlin.sbe.DevOpsRegistry;
+import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
@@ -19,6 +20,7 @@ import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import jenkins.model.Jenkins;
 import jenkins.tasks.SimpleBuildStep;
+import jenkins.util.SystemProperties;
 import net.sf.json.JSONObject;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
@@ -26,24 +28,36 @@ import org.jenkinsci.Symbol;
 import org.jetbrains.annotations.NotNull;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.verb.POST;
 import org.web3j.crypto.Credentials;
 import org.web3j.crypto.WalletUtils;
 import org.web3j.protocol.Web3j;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.tx.gas.ContractGasProvider;
 import org.web3j.tx.gas.DefaultGasProvider;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class DappVoterBuilder extends Builder implements SimpleBuildStep {
+    /**
+     * Seconds to wait for a proposal that is not on-chain yet, as the main pipeline may call the webhooks before its
+     * proposal is mined.
+     */
+    static final long PROPOSAL_WAIT = SystemProperties.getLong(DappVoterBuilder.class.getName() + ".proposalWait", 120L);
+
     private String credentialsId;
     private String operationType;
     private boolean accept;
     private String contractAddress;
+    private boolean runOnAgent;
 
     @DataBoundConstructor
     public DappVoterBuilder(String credentialsId, String operationType, boolean accept, String contractAddress) {
@@ -83,6 +97,18 @@ public class DappVoterBuilder extends Builder implements SimpleBuildStep {
         return contractAddress;
     }
 
+    public boolean isRunOnAgent() {
+        return runOnAgent;
+    }
+
+    /**
+     * @param runOnAgent whether the reads and receipt waits run on the agent of the build, see {@link AgentRpc}
+     */
+    @DataBoundSetter
+    public void setRunOnAgent(boolean runOnAgent) {
+        this.runOnAgent = runOnAgent;
+    }
+
     @Override
     public void perform(@NotNull Run<?, ?> run, @NotNull FilePath workspace, EnvVars env, @NotNull Launcher launcher, TaskListener listener) throws InterruptedException, IOException {
         String nodeUrl = NodeConfiguration.get().getNodeUrl();
@@ -106,9 +132,10 @@ public class DappVoterBuilder extends Builder implements SimpleBuildStep {
             throw new RuntimeException(e);
         }
 
-        Web3j web3 = Web3j.build(new HttpService(nodeUrl));
+        Web3j web3 = Web3jClients.get(nodeUrl);
         ContractGasProvider contractGasProvider = new DefaultGasProvider();
-        DevOpsRegistry devOpsRegistry = DevOpsRegistry.load(devOpsRegistryAddress, web3, credentials, contractGasProvider);
+        PipelinedTransactionManager transactionManager = PipelinedTransactionManager.get(nodeUrl, credentials);
+        AgentRpc agent = AgentRpc.forBuild(runOnAgent, workspace, nodeUrl, listener);
 
         if (operationType.equals("versionProposal")) {
             listener.getLogger().println("Getting given commit hash from environment");
@@ -121,24 +148,124 @@ public class DappVoterBuilder extends Builder implements SimpleBuildStep {
                 throw new RuntimeException(e);
             }
 
-            try {
-                devOpsRegistry.voteVersionProposal(gitCommitHashBytes, accept).send();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+            RegistryWatcher watcher = RegistryWatcher.forRegistry(nodeUrl, devOpsRegistryAddress);
+            ProposalOutcome outcome = watcher.versionOutcome(gitCommitHashBytes);
+            if (outcome == ProposalOutcome.ACCEPTED) {
+                listener.getLogger().println("VersionProposal has already been accepted, not voting");
+                return;
+            }
+
+            if (outcome == ProposalOutcome.REJECTED) {
+                // a rejected commit may be proposed again, and the new proposal may not be mined yet
+                if (awaitProposedAgain(run, listener, () -> TransactionPreflight.versionOutcome(web3, devOpsRegistryAddress, gitCommitHashBytes)) != null) {
+                    listener.getLogger().println("VersionProposal has already been decided, not voting");
+                    return;
+                }
+                watcher.versionProposalCreated(gitCommitHashBytes);
+            }
+
+            String revertReason = simulateVote(listener, agent, web3, credentials.getAddress(), devOpsRegistryAddress,
+                    DevOpsRegistryCodec.encodeVoteVersionProposal(gitCommitHashBytes, accept), TransactionPreflight.VERSION_PROPOSAL_MISSING);
+            if (TransactionPreflight.VERSION_PROPOSAL_VOTED.equals(revertReason)) {
+                listener.getLogger().println("Already voted on this VersionProposal");
+                return;
+            } else if (revertReason != null) {
+                throw new AbortException("Voting on the VersionProposal would revert: " + revertReason);
             }
+
+            TransactionJournal.Entry vote = TransactionAccelerator.submit(run, listener, transactionManager, "voteVersionProposal", devOpsRegistryAddress,
+                    DevOpsRegistryCodec.encodeVoteVersionProposal(gitCommitHashBytes, accept),
+                    contractGasProvider.getGasPrice(DevOpsRegistry.FUNC_VOTEVERSIONPROPOSAL), contractGasProvider.getGasLimit(DevOpsRegistry.FUNC_VOTEVERSIONPROPOSAL));
+            TransactionAccelerator.await(run, listener, web3, transactionManager, vote, agent);
         } else if (operationType.equals("deploymentProposal")) {
-            listener.getLogger().println("Getting givencontract address from environment");
-            String contractAddress = env.get("GIVEN_CONTRACT_ADDRESS");
-            listener.getLogger().println("Contract address: " + contractAddress);
+            listener.getLogger().println("Getting givencontract addresses from environment");
+            List<String> contractAddresses = DappMainBuilder.addressesFromEnvironment(env, "GIVEN_CONTRACT_ADDRESS");
+            listener.getLogger().println("Contract addresses: " + String.join(", ", contractAddresses));
+
+            RegistryWatcher watcher = RegistryWatcher.forRegistry(nodeUrl, devOpsRegistryAddress);
+            Map<String, TransactionJournal.Entry> votes = new LinkedHashMap<>();
+            for (String contractAddress : contractAddresses) {
+                ProposalOutcome outcome = watcher.deploymentOutcome(contractAddress);
+                if (outcome == ProposalOutcome.ACCEPTED) {
+                    listener.getLogger().println("DeploymentProposal for " + contractAddress + " has already been accepted, not voting");
+                    continue;
+                }
 
-            try {
-                devOpsRegistry.voteDeploymentProposal(contractAddress, accept).send();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                if (outcome == ProposalOutcome.REJECTED) {
+                    if (awaitProposedAgain(run, listener, () -> TransactionPreflight.deploymentOutcome(web3, devOpsRegistryAddress, contractAddress)) != null) {
+                        listener.getLogger().println("DeploymentProposal for " + contractAddress + " has already been decided, not voting");
+                        continue;
+                    }
+                    watcher.deploymentProposalCreated(contractAddress);
+                }
+
+                String revertReason = simulateVote(listener, agent, web3, credentials.getAddress(), devOpsRegistryAddress,
+                        DevOpsRegistryCodec.encodeVoteDeploymentProposal(contractAddress, accept), TransactionPreflight.DEPLOYMENT_PROPOSAL_MISSING);
+                if (TransactionPreflight.DEPLOYMENT_PROPOSAL_VOTED.equals(revertReason)) {
+                    listener.getLogger().println("Already voted on the DeploymentProposal for " + contractAddress);
+                    continue;
+                } else if (revertReason != null) {
+                    throw new AbortException("Voting on the DeploymentProposal for " + contractAddress + " would revert: " + revertReason);
+                }
+
+                votes.put(contractAddress, TransactionAccelerator.submit(run, listener, transactionManager, "voteDeploymentProposal", devOpsRegistryAddress,
+                        DevOpsRegistryCodec.encodeVoteDeploymentProposal(contractAddress, accept),
+                        contractGasProvider.getGasPrice(DevOpsRegistry.FUNC_VOTEDEPLOYMENTPROPOSAL), contractGasProvider.getGasLimit(DevOpsRegistry.FUNC_VOTEDEPLOYMENTPROPOSAL)));
+            }
+            for (TransactionJournal.Entry vote : votes.values()) {
+                TransactionAccelerator.await(run, listener, web3, transactionManager, vote, agent);
             }
         }
     }
 
+    /**
+     * A rejected proposal may be proposed again, and with early webhooks the build starts before the new proposal is
+     * mined. So while the proposal is still rejected and the build was triggered less than {@code proposalWait} seconds
+     * ago, its outcome is read again every {@code pollInterval} of the {@link TransactionAccelerator}.
+     *
+     * @param outcome reads the outcome from the chain, past the cache of the {@link RegistryWatcher}
+     * @return the outcome, {@code null} once the proposal was proposed again
+     */
+    private static ProposalOutcome awaitProposedAgain(Run<?, ?> run, TaskListener listener, RpcRateLimiter.IOCallable<ProposalOutcome> outcome)
+            throws IOException, InterruptedException {
+        ProposalOutcome current = outcome.call();
+        long deadline = run.getTimeInMillis() + TimeUnit.SECONDS.toMillis(PROPOSAL_WAIT);
+        if (current == ProposalOutcome.REJECTED && System.currentTimeMillis() < deadline) {
+            listener.getLogger().println("The proposal was rejected before, waiting for it to be proposed again");
+        }
+        while (current == ProposalOutcome.REJECTED && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(TransactionAccelerator.POLL_INTERVAL);
+            current = outcome.call();
+        }
+        return current;
+    }
+
+    /**
+     * Simulates the vote, and while the proposal does not exist yet, simulates it again every {@code pollInterval} of the
+     * {@link TransactionAccelerator} for up to {@code proposalWait} seconds.
+     *
+     * @param missing revert reason of the contract for a proposal that does not exist
+     * @return the revert reason, or {@code null} if the vote would succeed
+     */
+    private static String simulateVote(TaskListener listener, AgentRpc agent, Web3j web3, String from, String to, String data, String missing)
+            throws IOException, InterruptedException {
+        String revertReason = simulate(agent, web3, from, to, data);
+        if (!missing.equals(revertReason)) {
+            return revertReason;
+        }
+        listener.getLogger().println("The proposal is not on-chain yet, waiting up to " + PROPOSAL_WAIT + " seconds for it");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(PROPOSAL_WAIT);
+        while (missing.equals(revertReason) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(TransactionAccelerator.POLL_INTERVAL);
+            revertReason = simulate(agent, web3, from, to, data);
+        }
+        return revertReason;
+    }
+
+    private static String simulate(AgentRpc agent, Web3j web3, String from, String to, String data) throws IOException, InterruptedException {
+        return agent != null ? agent.simulate(from, to, data) : TransactionPreflight.simulate(web3, from, to, data);
+    }
+
     @Symbol("greet")
     @Extension
     public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
@@ -184,7 +311,8 @@ public class DappVoterBuilder extends Builder implements SimpleBuildStep {
 
         public FormValidation doCheckCredentialsId(
                 @AncestorInPath Item item, // (2)
-                @QueryParameter String value // (1)
+                @QueryParameter String value, // (1)
+                @QueryParameter String contractAddress
         ) throws IOException, InterruptedException {
             if (item == null) {
                 if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
@@ -229,21 +357,34 @@ public class DappVoterBuilder extends Builder implements SimpleBuildStep {
                 return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidPrivateKey());
             }
 
+            Credentials account;
             try {
-                Credentials.create(privateKey);
+                account = Credentials.create(privateKey);
             } catch (NumberFormatException e) {
                 return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidPrivateKey());
             }
 
-            return FormValidation.ok();
+            if (contractAddress == null || !WalletUtils.isValidAddress(contractAddress)) {
+                // no registry to check the key against yet
+                return FormValidation.ok();
+            }
+            return RegistryValidation.checkVoter(NodeConfiguration.get().getNodeUrl(), contractAddress, account.getAddress());
         }
 
-        public FormValidation doCheckContractAddress(@QueryParameter String value) throws IOException, ServletException {
+        @POST
+        public FormValidation doCheckContractAddress(@AncestorInPath Item item, @QueryParameter String value) throws IOException, ServletException {
             if (!WalletUtils.isValidAddress(value)) {
                 return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidAddress());
             }
 
-            return FormValidation.ok();
+            if (item == null) {
+                if (!Jenkins.get().hasPermission(Jenkins.ADMINISTER)) {
+                    return FormValidation.ok();
+                }
+            } else if (!item.hasPermission(Item.CONFIGURE)) {
+                return FormValidation.ok();
+            }
+            return RegistryValidation.checkRegistry(NodeConfiguration.get().getNodeUrl(), value);
         }
 
         @Override
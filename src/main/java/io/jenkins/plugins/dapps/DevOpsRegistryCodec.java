@@ -0,0 +1,250 @@
+package io.jenkins.plugins.dapps;
+
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Hand-specialized ABI encoding and decoding for the fixed-shape DevOpsRegistry calls that are polled most often.
+ * <p>
+ * The generated {@link de.tu_berlin.sbe.DevOpsRegistry} wrapper builds {@code Function}, parameter list and
+ * {@code TypeReference} objects for every call and decodes the result reflectively. Here the selectors are
+ * computed once and the calldata is written into a reusable per-thread buffer, so encoding allocates only the
+ * resulting string and decoding a {@code bool} allocates nothing.
+ */
+public final class DevOpsRegistryCodec {
+    static final String VERSION_PROPOSAL_ACCEPTED = selector("versionProposalAccepted(bytes20)");
+    static final String VERSION_PROPOSAL_REJECTED = selector("versionProposalRejected(bytes20)");
+    static final String DEPLOYMENT_PROPOSAL_ACCEPTED = selector("deploymentProposalAccepted(address)");
+    static final String DEPLOYMENT_PROPOSAL_REJECTED = selector("deploymentProposalRejected(address)");
+    static final String VOTERS = selector("voters(address)");
+    static final String PIPELINES = selector("pipelines(address)");
+    static final String MAIN_PIPELINE = selector("mainPipeline()");
+    static final String CREATE_VERSION_PROPOSAL = selector("createVersionProposal(bytes20)");
+    static final String CREATE_DEPLOYMENT_PROPOSAL = selector("createDeploymentProposal(address)");
+    static final String VOTE_VERSION_PROPOSAL = selector("voteVersionProposal(bytes20,bool)");
+    static final String VOTE_DEPLOYMENT_PROPOSAL = selector("voteDeploymentProposal(address,bool)");
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * "0x", the selector and two 32 byte words.
+     */
+    private static final int MAX_LENGTH = 2 + 8 + 2 * 64;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private DevOpsRegistryCodec() {
+    }
+
+    private static String selector(String signature) {
+        return Hash.sha3String(signature).substring(2, 10);
+    }
+
+    public static String encodeVersionProposalAccepted(byte[] name) {
+        return encodeBytes20(VERSION_PROPOSAL_ACCEPTED, name, -1);
+    }
+
+    public static String encodeVersionProposalRejected(byte[] name) {
+        return encodeBytes20(VERSION_PROPOSAL_REJECTED, name, -1);
+    }
+
+    public static String encodeDeploymentProposalAccepted(String newDeployment) {
+        return encodeAddress(DEPLOYMENT_PROPOSAL_ACCEPTED, newDeployment, -1);
+    }
+
+    public static String encodeDeploymentProposalRejected(String newDeployment) {
+        return encodeAddress(DEPLOYMENT_PROPOSAL_REJECTED, newDeployment, -1);
+    }
+
+    public static String encodeVoters(String voter) {
+        return encodeAddress(VOTERS, voter, -1);
+    }
+
+    public static String encodePipelines(String pipeline) {
+        return encodeAddress(PIPELINES, pipeline, -1);
+    }
+
+    public static String encodeMainPipeline() {
+        return "0x" + MAIN_PIPELINE;
+    }
+
+    public static String encodeCreateVersionProposal(byte[] name) {
+        return encodeBytes20(CREATE_VERSION_PROPOSAL, name, -1);
+    }
+
+    public static String encodeCreateDeploymentProposal(String newDeployment) {
+        return encodeAddress(CREATE_DEPLOYMENT_PROPOSAL, newDeployment, -1);
+    }
+
+    public static String encodeVoteVersionProposal(byte[] name, boolean accept) {
+        return encodeBytes20(VOTE_VERSION_PROPOSAL, name, accept ? 1 : 0);
+    }
+
+    public static String encodeVoteDeploymentProposal(String newDeployment, boolean accept) {
+        return encodeAddress(VOTE_DEPLOYMENT_PROPOSAL, newDeployment, accept ? 1 : 0);
+    }
+
+    /**
+     * @param result hex encoded return data of a call returning a single {@code bool}
+     * @return the decoded value
+     * @throws IllegalArgumentException if the data is no ABI encoded {@code bool}
+     */
+    public static boolean decodeBool(String result) {
+        int offset = result.startsWith("0x") ? 2 : 0;
+        if (result.length() - offset < 64) {
+            throw new IllegalArgumentException("Return data is too short for a bool: " + result);
+        }
+        for (int i = offset; i < offset + 63; i++) {
+            if (result.charAt(i) != '0') {
+                throw new IllegalArgumentException("Return data is no bool: " + result);
+            }
+        }
+        char last = result.charAt(offset + 63);
+        if (last == '1') {
+            return true;
+        }
+        if (last == '0') {
+            return false;
+        }
+        throw new IllegalArgumentException("Return data is no bool: " + result);
+    }
+
+    /**
+     * @param result hex encoded return data of a call returning a single {@code address}
+     * @return the decoded address with {@code 0x} prefix
+     * @throws IllegalArgumentException if the data is no ABI encoded {@code address}
+     */
+    public static String decodeAddress(String result) {
+        int offset = result.startsWith("0x") ? 2 : 0;
+        if (result.length() - offset < 64) {
+            throw new IllegalArgumentException("Return data is too short for an address: " + result);
+        }
+        for (int i = offset; i < offset + 24; i++) {
+            if (result.charAt(i) != '0') {
+                throw new IllegalArgumentException("Return data is no address: " + result);
+            }
+        }
+        return "0x" + result.substring(offset + 24, offset + 64);
+    }
+
+    /**
+     * Calls a view function.
+     *
+     * @param web3j           web3j client
+     * @param registryAddress address of the DevOpsRegistry
+     * @param data            calldata from one of the {@code encode} methods
+     * @return the hex encoded return data, or {@code null} if the call reverted
+     * @throws IOException if the node failed to execute the call for another reason, such as rate limiting
+     */
+    public static String call(Web3j web3j, String registryAddress, String data) throws IOException {
+        EthCall ethCall = web3j.ethCall(Transaction.createEthCallTransaction(null, registryAddress, data), DefaultBlockParameterName.LATEST).send();
+        if (ethCall.hasError()) {
+            if (isRevert(ethCall.getError())) {
+                return null;
+            }
+            throw new IOException(ethCall.getError().getMessage());
+        }
+        if (ethCall.isReverted()) {
+            return null;
+        }
+        return ethCall.getValue();
+    }
+
+    /**
+     * @return whether the JSON-RPC error reports a revert of the call: code 3 from Geth, or the revert messages of
+     * Geth, Hardhat and Ganache without it
+     */
+    static boolean isRevert(Response.Error error) {
+        if (error.getCode() == 3) {
+            return true;
+        }
+        String message = error.getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains("revert");
+    }
+
+    /**
+     * Calls a view function returning a single {@code bool}.
+     *
+     * @param web3j           web3j client
+     * @param registryAddress address of the DevOpsRegistry
+     * @param data            calldata from one of the {@code encode} methods
+     * @return the result, or {@code null} if the call reverted
+     * @throws IOException if the call failed or returned no {@code bool}, e.g. because there is no contract at the
+     *                     address
+     */
+    public static Boolean callBool(Web3j web3j, String registryAddress, String data) throws IOException {
+        String result = call(web3j, registryAddress, data);
+        if (result == null) {
+            return null;
+        }
+        if (result.isEmpty() || result.equals("0x")) {
+            throw new IOException("The call returned no data, is there a DevOpsRegistry at " + registryAddress + "?");
+        }
+        try {
+            return decodeBool(result);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static String encodeBytes20(String selector, byte[] value, int bool) {
+        if (value.length != 20) {
+            throw new IllegalArgumentException("Expected 20 bytes but got " + value.length);
+        }
+        char[] buffer = BUFFER.get();
+        int position = writeSelector(buffer, selector);
+        for (byte b : value) {
+            buffer[position++] = HEX_DIGITS[(b >> 4) & 0xf];
+            buffer[position++] = HEX_DIGITS[b & 0xf];
+        }
+        position = pad(buffer, position, 24);
+        return finish(buffer, position, bool);
+    }
+
+    private static String encodeAddress(String selector, String address, int bool) {
+        int offset = address.startsWith("0x") || address.startsWith("0X") ? 2 : 0;
+        if (address.length() - offset != 40) {
+            throw new IllegalArgumentException("Not a valid address: " + address);
+        }
+        char[] buffer = BUFFER.get();
+        int position = writeSelector(buffer, selector);
+        position = pad(buffer, position, 24);
+        for (int i = offset; i < address.length(); i++) {
+            char c = Character.toLowerCase(address.charAt(i));
+            if (Character.digit(c, 16) < 0) {
+                throw new IllegalArgumentException("Not a valid address: " + address);
+            }
+            buffer[position++] = c;
+        }
+        return finish(buffer, position, bool);
+    }
+
+    private static int writeSelector(char[] buffer, String selector) {
+        buffer[0] = '0';
+        buffer[1] = 'x';
+        selector.getChars(0, 8, buffer, 2);
+        return 10;
+    }
+
+    private static int pad(char[] buffer, int position, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer[position++] = '0';
+        }
+        return position;
+    }
+
+    private static String finish(char[] buffer, int position, int bool) {
+        if (bool >= 0) {
+            position = pad(buffer, position, 63);
+            buffer[position++] = bool == 1 ? '1' : '0';
+        }
+        return new String(buffer, 0, position);
+    }
+}
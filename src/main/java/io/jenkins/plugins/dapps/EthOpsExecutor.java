@@ -0,0 +1,139 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor for the blocking network I/O of EthOps besides the build threads: the receipt waits of
+ * {@link PipelinedTransactionManager#submit}, webhook deliveries, the votes of the {@link AutoVoter} and the chunks of
+ * the event export.
+ * <p>
+ * The waits of the build steps themselves stay on the build thread, as a {@link jenkins.tasks.SimpleBuildStep} only
+ * ends when they are over: the receipt polling of the {@link TransactionAccelerator}, the simulations before a vote and
+ * the waits for the outcome of the proposals. They hold the executor of their build and are not counted here; with
+ * {@code runOnAgent} they hold a thread of the agent instead.
+ * <p>
+ * On JDK 21 and newer every task gets its own virtual thread, so thousands of waiting tasks share a few carrier
+ * threads. Older JDKs, or {@code -Dio.jenkins.plugins.dapps.EthOpsExecutor.virtualThreads=false}, get a pool of at
+ * most {@code maxThreads} daemon threads and queue the remaining tasks. {@link #metrics()} tells how many tasks are
+ * running and how many platform threads the JVM needs for them.
+ * <p>
+ * Like the tasks of {@link jenkins.util.Timer}, every task runs as {@link ACL#SYSTEM2}, whichever user submitted it.
+ */
+public final class EthOpsExecutor implements Executor {
+    private static final Logger LOGGER = Logger.getLogger(EthOpsExecutor.class.getName());
+
+    static final boolean VIRTUAL_THREADS = SystemProperties.getBoolean(EthOpsExecutor.class.getName() + ".virtualThreads", true);
+
+    /**
+     * Size of the pool when virtual threads are not available.
+     */
+    static final int MAX_THREADS = SystemProperties.getInteger(EthOpsExecutor.class.getName() + ".maxThreads", 64);
+
+    private static final EthOpsExecutor INSTANCE = create();
+
+    private final ExecutorService delegate;
+    private final boolean virtual;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakRunning = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+
+    private EthOpsExecutor(ExecutorService delegate, boolean virtual) {
+        this.delegate = delegate;
+        this.virtual = virtual;
+    }
+
+    /**
+     * @return the shared executor
+     */
+    public static EthOpsExecutor get() {
+        return INSTANCE;
+    }
+
+    private static EthOpsExecutor create() {
+        if (VIRTUAL_THREADS) {
+            try {
+                // compiled for Java 11, look the JDK 21 API up at runtime
+                ExecutorService virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                return new EthOpsExecutor(virtual, true);
+            } catch (NoSuchMethodException e) {
+                LOGGER.log(Level.FINE, "Virtual threads are not available, using a pool of {0} threads", MAX_THREADS);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not create the virtual thread executor, using a pool of " + MAX_THREADS + " threads", e);
+            }
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "EthOps I/O"));
+        pool.allowCoreThreadTimeOut(true);
+        return new EthOpsExecutor(pool, false);
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @return a future of the task, cancelling it interrupts the task
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                command.run();
+            } finally {
+                running.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * @return the thread usage, also served at {@code /ethops/threads}
+     */
+    public JSONObject metrics() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        JSONObject json = new JSONObject()
+                // build steps wait for receipts, simulations and proposal outcomes on their own build threads
+                .element("scope", "background I/O only, not the waits of running build steps")
+                .element("virtualThreads", virtual)
+                .element("runningTasks", running.get())
+                .element("peakRunningTasks", peakRunning.get())
+                .element("completedTasks", completed.get())
+                // the MXBean only counts platform threads
+                .element("platformThreads", threads.getThreadCount())
+                .element("peakPlatformThreads", threads.getPeakThreadCount());
+        if (delegate instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) delegate;
+            json.element("poolThreads", pool.getPoolSize())
+                    .element("queuedTasks", pool.getQueue().size());
+        }
+        return json;
+    }
+}
@@ -0,0 +1,62 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import jenkins.model.Jenkins;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.Option;
+import org.web3j.crypto.WalletUtils;
+import org.web3j.protocol.Web3j;
+
+import java.math.BigInteger;
+
+/**
+ * {@code export-registry-events}: writes every event of a DevOpsRegistry in a block range to stdout, for audits. See
+ * {@link RegistryEventExport}.
+ */
+@Extension
+public class ExportRegistryEventsCommand extends CLICommand {
+    @Argument(metaVar = "REGISTRY", usage = "Address of the DevOpsRegistry", required = true)
+    public String registryAddress;
+
+    @Option(name = "-from", metaVar = "BLOCK", usage = "First block to export, ideally the one the registry was deployed in (default 0)")
+    public long fromBlock;
+
+    @Option(name = "-to", metaVar = "BLOCK", usage = "Last block to export (default the latest block)")
+    public Long toBlock;
+
+    @Option(name = "-format", metaVar = "jsonl|csv", usage = "Output format (default jsonl)")
+    public String format = "jsonl";
+
+    @Option(name = "-concurrency", metaVar = "N", usage = "Chunks read at the same time, capped by the maxConcurrency system property")
+    public int concurrency = RegistryEventExport.CONCURRENCY;
+
+    @Override
+    public String getShortDescription() {
+        return "Exports all events of a DevOpsRegistry as JSON lines or CSV";
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Jenkins.get().checkPermission(Jenkins.READ);
+        if (!WalletUtils.isValidAddress(registryAddress)) {
+            stderr.println("Invalid registry address: " + registryAddress);
+            return 3;
+        }
+        if (!format.equals("jsonl") && !format.equals("csv")) {
+            stderr.println("Unknown format: " + format);
+            return 3;
+        }
+        Web3j web3j = Web3jClients.get(NodeConfiguration.get().getNodeUrl());
+        BigInteger to = toBlock != null ? BigInteger.valueOf(toBlock) : web3j.ethBlockNumber().send().getBlockNumber();
+
+        int parallel = RegistryEventExport.clampConcurrency(concurrency);
+        if (parallel != concurrency) {
+            stderr.println("Reading " + parallel + " chunks at the same time instead of " + concurrency);
+        }
+        RegistryEventExport export = new RegistryEventExport(web3j, registryAddress, parallel);
+        long events = export.export(BigInteger.valueOf(fromBlock), to, format.equals("csv"), stdout);
+        stderr.println("Exported " + events + " events from blocks " + fromBlock + " to " + to + " in " + export.getChunks() + " requests");
+        return 0;
+    }
+}
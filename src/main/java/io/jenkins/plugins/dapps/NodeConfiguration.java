@@ -13,7 +13,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 
 /**
- * Jenkins global configuration for the Ethereum node URL.
+ * Jenkins global configuration for the Ethereum node URL and the rate limit towards it.
  */
 @Extension
 public class NodeConfiguration extends GlobalConfiguration {
@@ -27,9 +27,15 @@ public class NodeConfiguration extends GlobalConfiguration {
 
     private String nodeUrl = "http://127.0.0.1:8545";
 
+    private int requestsPerSecond = 25;
+    private int burst = 50;
+    private int maxQueuedReads = 100;
+    private int maxReadWaitSeconds = 10;
+
     public NodeConfiguration() {
         // When Jenkins is restarted, load any saved configuration from disk.
         load();
+        applyRateLimit();
     }
 
     /**
@@ -50,6 +56,66 @@ public class NodeConfiguration extends GlobalConfiguration {
         save();
     }
 
+    /**
+     * @return sustained JSON-RPC requests per second sent to the node by the whole controller, 0 for no limit
+     */
+    public int getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    @DataBoundSetter
+    public void setRequestsPerSecond(int requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+        save();
+        applyRateLimit();
+    }
+
+    /**
+     * @return requests that may be sent at once after a quiet period
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    @DataBoundSetter
+    public void setBurst(int burst) {
+        this.burst = burst;
+        save();
+        applyRateLimit();
+    }
+
+    /**
+     * @return background reads that may wait for the node at the same time before further ones are dropped
+     */
+    public int getMaxQueuedReads() {
+        return maxQueuedReads;
+    }
+
+    @DataBoundSetter
+    public void setMaxQueuedReads(int maxQueuedReads) {
+        this.maxQueuedReads = maxQueuedReads;
+        save();
+        applyRateLimit();
+    }
+
+    /**
+     * @return seconds a background read waits for the node before it is dropped
+     */
+    public int getMaxReadWaitSeconds() {
+        return maxReadWaitSeconds;
+    }
+
+    @DataBoundSetter
+    public void setMaxReadWaitSeconds(int maxReadWaitSeconds) {
+        this.maxReadWaitSeconds = maxReadWaitSeconds;
+        save();
+        applyRateLimit();
+    }
+
+    private void applyRateLimit() {
+        RpcRateLimiter.get().configure(requestsPerSecond, burst, maxQueuedReads, maxReadWaitSeconds);
+    }
+
     public FormValidation doCheckNodeUrl(@QueryParameter String value) throws IOException, ServletException {
         try {
             new URL(value);
@@ -0,0 +1,143 @@
+package io.jenkins.plugins.dapps;
+
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthChainId;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.exceptions.TransactionException;
+import org.web3j.tx.RawTransactionManager;
+import org.web3j.tx.TransactionManager;
+import org.web3j.tx.response.PollingTransactionReceiptProcessor;
+import org.web3j.tx.response.TransactionReceiptProcessor;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transaction manager that signs transactions locally without any setup calls to the node.
+ * <p>
+ * The chain ID is read once per node URL, the nonce once per account and then counted locally, and the gas comes
+ * from the gas provider of the contract. Sending a transaction therefore costs a single
+ * {@code eth_sendRawTransaction}. {@link #submit} returns right after broadcasting with a future for the receipt,
+ * so callers can overlap broadcasting and confirmation.
+ */
+public class PipelinedTransactionManager extends RawTransactionManager {
+    private static final Map<String, Long> CHAIN_IDS = new ConcurrentHashMap<>();
+    private static final Map<String, PipelinedTransactionManager> MANAGERS = new ConcurrentHashMap<>();
+
+    private final Web3j web3j;
+    private final String fromAddress;
+    private final TransactionReceiptProcessor receiptProcessor;
+
+    private BigInteger nextNonce;
+
+    PipelinedTransactionManager(Web3j web3j, Credentials credentials, long chainId, TransactionReceiptProcessor receiptProcessor) {
+        super(web3j, credentials, chainId, receiptProcessor);
+        this.web3j = web3j;
+        this.fromAddress = credentials.getAddress();
+        this.receiptProcessor = receiptProcessor;
+    }
+
+    /**
+     * Returns the shared transaction manager for the account, so that all builds using the same key count their
+     * nonces together.
+     *
+     * @param nodeUrl     URL of the Ethereum node
+     * @param credentials key to sign with
+     * @return the transaction manager for the account on that node
+     */
+    public static PipelinedTransactionManager get(String nodeUrl, Credentials credentials) throws IOException {
+        Web3j web3j = Web3jClients.get(nodeUrl);
+        long chainId = chainId(nodeUrl, web3j);
+        return MANAGERS.computeIfAbsent(nodeUrl + "|" + credentials.getAddress(), key -> new PipelinedTransactionManager(web3j, credentials, chainId,
+                new PollingTransactionReceiptProcessor(web3j, TransactionManager.DEFAULT_POLLING_FREQUENCY, TransactionManager.DEFAULT_POLLING_ATTEMPTS_PER_TX_HASH)));
+    }
+
+    static long chainId(String nodeUrl, Web3j web3j) throws IOException {
+        Long chainId = CHAIN_IDS.get(nodeUrl);
+        if (chainId == null) {
+            EthChainId ethChainId = web3j.ethChainId().send();
+            if (ethChainId.hasError()) {
+                throw new IOException("Could not read the chain ID: " + ethChainId.getError().getMessage());
+            }
+            chainId = ethChainId.getChainId().longValue();
+            CHAIN_IDS.put(nodeUrl, chainId);
+        }
+        return chainId;
+    }
+
+    @Override
+    protected synchronized BigInteger getNonce() throws IOException {
+        if (nextNonce == null) {
+            EthGetTransactionCount transactionCount = web3j.ethGetTransactionCount(fromAddress, DefaultBlockParameterName.PENDING).send();
+            if (transactionCount.hasError()) {
+                throw new IOException("Could not read the nonce: " + transactionCount.getError().getMessage());
+            }
+            nextNonce = transactionCount.getTransactionCount();
+        }
+        BigInteger nonce = nextNonce;
+        nextNonce = nextNonce.add(BigInteger.ONE);
+        return nonce;
+    }
+
+    /**
+     * Forgets the locally counted nonce, it is read from the node again for the next transaction.
+     */
+    synchronized void resetNonce() {
+        nextNonce = null;
+    }
+
+    @Override
+    public EthSendTransaction sendTransaction(BigInteger gasPrice, BigInteger gasLimit, String to, String data, BigInteger value, boolean constructor) throws IOException {
+        EthSendTransaction response;
+        try {
+            response = super.sendTransaction(gasPrice, gasLimit, to, data, value, constructor);
+        } catch (IOException e) {
+            resetNonce();
+            throw e;
+        }
+        if (response.hasError()) {
+            resetNonce();
+        }
+        return response;
+    }
+
+    /**
+     * Broadcasts a transaction signed with {@link #sign}, without counting a nonce.
+     */
+    EthSendTransaction sendRaw(String signedTransaction) throws IOException {
+        return web3j.ethSendRawTransaction(signedTransaction).send();
+    }
+
+    /**
+     * Signs and broadcasts a call with pre-encoded calldata.
+     *
+     * @param to       address of the contract
+     * @param data     encoded function call
+     * @param gasPrice gas price of the transaction
+     * @param gasLimit gas limit of the transaction
+     * @return a future completing with the receipt once the transaction is mined
+     * @throws IOException if the transaction could not be broadcast
+     */
+    public CompletableFuture<TransactionReceipt> submit(String to, String data, BigInteger gasPrice, BigInteger gasLimit) throws IOException {
+        EthSendTransaction response = sendTransaction(gasPrice, gasLimit, to, data, BigInteger.ZERO);
+        if (response.hasError()) {
+            throw new IOException("Error processing transaction request: " + response.getError().getMessage());
+        }
+        String transactionHash = response.getTransactionHash();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return receiptProcessor.waitForTransactionReceipt(transactionHash);
+            } catch (IOException | TransactionException e) {
+                throw new CompletionException(e);
+            }
+        }, EthOpsExecutor.get());
+    }
+}
@@ -0,0 +1,158 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.Extension;
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterValue;
+import hudson.triggers.Trigger;
+import hudson.triggers.TriggerDescriptor;
+import hudson.util.FormValidation;
+import jenkins.model.ParameterizedJobMixIn;
+import org.apache.commons.codec.binary.Hex;
+import org.jenkinsci.Symbol;
+import org.jetbrains.annotations.NotNull;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.web3j.crypto.WalletUtils;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the voter job whenever a VersionProposal or DeploymentProposal is created in the DevOpsRegistry.
+ * <p>
+ * Replaces the webhook calls of the main pipeline: the job gets the same {@code GIVEN_GIT_COMMIT},
+ * {@code GIVEN_CONTRACT_ADDRESS} and {@code VOTING_TYPE} parameters, which therefore have to be defined on the job.
+ * The parameter a proposal does not name, the contract address of a VersionProposal or the commit of a
+ * DeploymentProposal, keeps its default value.
+ * Builds with identical parameters that are still waiting in the queue are coalesced by Jenkins.
+ */
+public class ProposalCreatedTrigger extends Trigger<Job<?, ?>> implements RegistryWatcher.Listener {
+    private final String contractAddress;
+
+    private transient RegistryWatcher watcher;
+
+    @DataBoundConstructor
+    public ProposalCreatedTrigger(String contractAddress) {
+        this.contractAddress = contractAddress;
+    }
+
+    public String getContractAddress() {
+        return contractAddress;
+    }
+
+    @Override
+    public void start(Job<?, ?> project, boolean newInstance) {
+        super.start(project, newInstance);
+        watcher = RegistryWatcher.forRegistry(NodeConfiguration.get().getNodeUrl(), contractAddress);
+        watcher.addListener(this);
+    }
+
+    @Override
+    public void stop() {
+        if (watcher != null) {
+            watcher.removeListener(this);
+            watcher = null;
+        }
+        super.stop();
+    }
+
+    @Override
+    public void onVersionProposalCreated(RegistryWatcher watcher, byte[] name) {
+        String gitCommitHash = Hex.encodeHexString(name);
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("GIVEN_GIT_COMMIT", gitCommitHash);
+        values.put("VOTING_TYPE", "version");
+        schedule(Messages.ProposalCreatedTrigger_VersionCause(gitCommitHash, contractAddress), values);
+    }
+
+    @Override
+    public void onDeploymentProposalCreated(RegistryWatcher watcher, String newDeployment) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("GIVEN_CONTRACT_ADDRESS", newDeployment);
+        values.put("VOTING_TYPE", "deployment");
+        schedule(Messages.ProposalCreatedTrigger_DeploymentCause(newDeployment, contractAddress), values);
+    }
+
+    private void schedule(String description, Map<String, String> values) {
+        if (job == null) {
+            return;
+        }
+        // with a ParametersAction Jenkins does not add the defaults of the job, so they are added here
+        List<ParameterValue> parameters = new ArrayList<>();
+        Map<String, String> remaining = new LinkedHashMap<>(values);
+        ParametersDefinitionProperty property = job.getProperty(ParametersDefinitionProperty.class);
+        if (property != null) {
+            for (ParameterDefinition definition : property.getParameterDefinitions()) {
+                String value = remaining.remove(definition.getName());
+                ParameterValue parameter = value != null ? new StringParameterValue(definition.getName(), value) : definition.getDefaultParameterValue();
+                if (parameter != null) {
+                    parameters.add(parameter);
+                }
+            }
+        }
+        for (Map.Entry<String, String> value : remaining.entrySet()) {
+            parameters.add(new StringParameterValue(value.getKey(), value.getValue()));
+        }
+        ParameterizedJobMixIn.scheduleBuild2(job, 0, new CauseAction(new ProposalCreatedCause(description)), new ParametersAction(parameters));
+    }
+
+    /**
+     * Cause of a build started by a new proposal in the DevOpsRegistry.
+     */
+    public static class ProposalCreatedCause extends Cause {
+        private final String description;
+
+        public ProposalCreatedCause(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String getShortDescription() {
+            return description;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ProposalCreatedCause && description.equals(((ProposalCreatedCause) o).description);
+        }
+
+        @Override
+        public int hashCode() {
+            return description.hashCode();
+        }
+    }
+
+    @Symbol("ethOpsProposals")
+    @Extension
+    public static final class DescriptorImpl extends TriggerDescriptor {
+        @Override
+        public boolean isApplicable(Item item) {
+            return item instanceof ParameterizedJobMixIn.ParameterizedJob;
+        }
+
+        public FormValidation doCheckContractAddress(@QueryParameter String value) throws IOException, ServletException {
+            if (!WalletUtils.isValidAddress(value)) {
+                return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_invalidAddress());
+            }
+
+            return FormValidation.ok();
+        }
+
+        @NotNull
+        @Override
+        public String getDisplayName() {
+            return Messages.ProposalCreatedTrigger_DescriptorImpl_DisplayName();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package io.jenkins.plugins.dapps;
+
+/**
+ * Final state of a proposal in the DevOpsRegistry.
+ */
+public enum ProposalOutcome {
+    ACCEPTED,
+    REJECTED
+}
@@ -0,0 +1,64 @@
+package io.jenkins.plugins.dapps;
+
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link HttpService} that takes a token from the {@link RpcRateLimiter} before every request.
+ * <p>
+ * When the node answers with HTTP 429, requests from builds are repeated with a growing pause, while sheddable
+ * background requests fail right away.
+ */
+public class RateLimitedHttpService extends HttpService {
+    private static final Pattern METHOD = Pattern.compile("\"method\"\\s*:\\s*\"([^\"]+)\"");
+
+    /**
+     * How often a request from a build is repeated after the node answered with HTTP 429.
+     */
+    static final int THROTTLED_RETRIES = 3;
+
+    private final RpcRateLimiter limiter;
+
+    public RateLimitedHttpService(String url, RpcRateLimiter limiter) {
+        super(url);
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected InputStream performIO(String request) throws IOException {
+        RpcRateLimiter.Lane lane = RpcRateLimiter.laneOf(method(request));
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire(lane);
+            try {
+                return super.performIO(request);
+            } catch (ClientConnectionException e) {
+                if (!isThrottled(e) || attempt >= THROTTLED_RETRIES || RpcRateLimiter.isSheddable()) {
+                    throw e;
+                }
+                // give the node a break before any lane sends again
+                limiter.throttled();
+                try {
+                    Thread.sleep(500L << attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while backing off from the Ethereum node");
+                }
+            }
+        }
+    }
+
+    static String method(String request) {
+        Matcher matcher = METHOD.matcher(request);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static boolean isThrottled(ClientConnectionException e) {
+        return e.getMessage() != null && e.getMessage().startsWith("Invalid response received: 429");
+    }
+}
@@ -0,0 +1,134 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.verb.GET;
+import org.web3j.crypto.WalletUtils;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only JSON API for the DevOpsRegistries on the configured node, at {@code /ethops/<registry address>/}.
+ * <p>
+ * Offers {@code /} for a summary, {@code proposals} for the paginated proposals with their tallies and outcomes,
+ * {@code voters} for the voter set and {@code events} for a server-sent event stream of changes; see
+ * {@link RegistryState}. A registry is followed from its first request until nobody asked for it during
+ * {@code idleMinutes} minutes. Each newly followed registry costs a read of its recent history, so at most
+ * {@code maxRegistries} are followed at the same time; requests for further ones get a 503 until one of them idles. {@code /ethops/threads} reports the thread usage of the {@link EthOpsExecutor}.
+ * Requires the overall read permission.
+ */
+@Extension
+public class RegistryApi implements RootAction {
+    private static final Logger LOGGER = Logger.getLogger(RegistryApi.class.getName());
+
+    static final long IDLE_MINUTES = SystemProperties.getLong(RegistryApi.class.getName() + ".idleMinutes", 30L);
+
+    static final int MAX_REGISTRIES = SystemProperties.getInteger(RegistryApi.class.getName() + ".maxRegistries", 16);
+
+    private final Map<String, RegistryState> states = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> cleanup;
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "ethops";
+    }
+
+    /**
+     * Serves the {@link EthOpsExecutor#metrics() thread usage} of the EthOps background I/O at
+     * {@code /ethops/threads}. The build steps wait on their own build threads, which are not included.
+     */
+    @GET
+    public void doThreads(StaplerResponse rsp) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.READ);
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(EthOpsExecutor.get().metrics());
+    }
+
+    /**
+     * @param registryAddress address of the DevOpsRegistry, the next URL segment
+     * @return the state of the registry, {@code null} for a 404 if the address is invalid
+     */
+    public RegistryState getDynamic(String registryAddress) throws IOException, InterruptedException {
+        Jenkins.get().checkPermission(Jenkins.READ);
+        if (!WalletUtils.isValidAddress(registryAddress)) {
+            return null;
+        }
+        String key = registryAddress.toLowerCase(Locale.ROOT);
+        RegistryState state = states.get(key);
+        if (state == null) {
+            state = start(key);
+        }
+        state.awaitBackfill();
+        return state;
+    }
+
+    private RegistryState start(String registryAddress) throws IOException {
+        String nodeUrl = NodeConfiguration.get().getNodeUrl();
+        RegistryState state;
+        synchronized (this) {
+            state = states.get(registryAddress);
+            if (state != null) {
+                return state;
+            }
+            if (states.size() >= MAX_REGISTRIES) {
+                throw HttpResponses.errorWithoutStack(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                        "Already following " + states.size() + " DevOpsRegistries, try again once one of them is idle");
+            }
+            state = new RegistryState(Web3jClients.get(nodeUrl), registryAddress);
+            states.put(registryAddress, state);
+            if (cleanup == null) {
+                cleanup = Timer.get().scheduleWithFixedDelay(this::stopIdle, 1, 1, TimeUnit.MINUTES);
+            }
+        }
+        // requests for other registries do not wait for the history of this one
+        try {
+            state.backfill();
+        } catch (IOException | RuntimeException e) {
+            states.remove(registryAddress, state);
+            throw e;
+        }
+        RegistryWatcher.forRegistry(nodeUrl, registryAddress).addLogListener(state);
+        return state;
+    }
+
+    private synchronized void stopIdle() {
+        String nodeUrl = NodeConfiguration.get().getNodeUrl();
+        for (Iterator<RegistryState> it = states.values().iterator(); it.hasNext(); ) {
+            RegistryState state = it.next();
+            if (System.nanoTime() - state.getLastAccess() > TimeUnit.MINUTES.toNanos(IDLE_MINUTES)) {
+                LOGGER.log(Level.FINE, "Stopping to follow the DevOpsRegistry at {0} for the API", state.getRegistryAddress());
+                RegistryWatcher.forRegistry(nodeUrl, state.getRegistryAddress()).removeLogListener(state);
+                it.remove();
+            }
+        }
+        if (states.isEmpty() && cleanup != null) {
+            cleanup.cancel(false);
+            cleanup = null;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
+import org.apache.commons.codec.binary.Hex;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.EventValues;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Writes all events a DevOpsRegistry emitted in a block range as JSON lines or CSV, in block order.
+ * <p>
+ * The range is read in chunks, up to {@code concurrency} at a time on the {@link EthOpsExecutor}, and written as soon
+ * as all earlier chunks are written, so only the chunks in flight are held in memory. A chunk the node refuses as too
+ * large is split in halves and the chunk size for the rest of the export is lowered; after a successful chunk it grows
+ * again, but not to a size that was refused before.
+ */
+final class RegistryEventExport {
+    static final int CONCURRENCY = SystemProperties.getInteger(RegistryEventExport.class.getName() + ".concurrency", 4);
+
+    /**
+     * Most chunks read at the same time, whatever {@code -concurrency} asks for.
+     */
+    static final int MAX_CONCURRENCY = SystemProperties.getInteger(RegistryEventExport.class.getName() + ".maxConcurrency", 16);
+
+    /**
+     * Largest chunk in blocks.
+     */
+    static final long MAX_CHUNK = SystemProperties.getLong(RegistryEventExport.class.getName() + ".maxChunk", 100000L);
+
+    static final String CSV_HEADER = "block,logIndex,transactionHash,event,voter,subject,accepted,quorum";
+
+    // how providers word range and result limits of eth_getLogs
+    private static final Pattern RANGE_LIMIT = Pattern.compile(
+            "(?i).*(block range|range (is )?too (large|wide|big)|range limit|exceeds? max(imum)? (block )?range|more than \\d+ (results|logs|blocks)"
+                    + "|too many (results|logs|blocks)|response size|query timeout).*", Pattern.DOTALL);
+
+    // how providers word rate limits, which a smaller chunk does not help against
+    private static final Pattern RATE_LIMIT = Pattern.compile("(?i).*(rate limit|too many requests|request rate|\\b429\\b).*", Pattern.DOTALL);
+
+    private static final Map<String, Event> EVENTS = new HashMap<>();
+    private static final Map<Event, String> NAMES = new HashMap<>();
+
+    static {
+        event(DevOpsRegistry.NOMINATEVOTER_EVENT, "NominateVoter");
+        event(DevOpsRegistry.RELEASEVOTER_EVENT, "ReleaseVoter");
+        event(DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT, "VersionProposalCreated");
+        event(DevOpsRegistry.DEPLOYMENTPROPOSALCREATED_EVENT, "DeploymentProposalCreated");
+        event(DevOpsRegistry.VERSIONQUORUMPROPOSALCREATED_EVENT, "VersionQuorumProposalCreated");
+        event(DevOpsRegistry.ROLEBINDINGQUORUMPROPOSALCREATED_EVENT, "RoleBindingQuorumProposalCreated");
+        event(DevOpsRegistry.ROLEBINDINGVOTECAST_EVENT, "RoleBindingVoteCast");
+        event(DevOpsRegistry.VERSIONVOTECAST_EVENT, "VersionVoteCast");
+        event(DevOpsRegistry.DEPLOYMENTVOTECAST_EVENT, "DeploymentVoteCast");
+        event(DevOpsRegistry.QUORUMVOTECAST_EVENT, "QuorumVoteCast");
+        event(DevOpsRegistry.ROLEBINDINGACCEPTED_EVENT, "RoleBindingAccepted");
+        event(DevOpsRegistry.ROLEBINDINGREJECTED_EVENT, "RoleBindingRejected");
+        event(DevOpsRegistry.VERSIONACCEPTED_EVENT, "VersionAccepted");
+        event(DevOpsRegistry.VERSIONREJECTED_EVENT, "VersionRejected");
+        event(DevOpsRegistry.DEPLOYMENTACCEPTED_EVENT, "DeploymentAccepted");
+        event(DevOpsRegistry.DEPLOYMENTREJECTED_EVENT, "DeploymentRejected");
+        event(DevOpsRegistry.QUORUMACCEPTED_EVENT, "QuorumAccepted");
+        event(DevOpsRegistry.QUORUMREJECTED_EVENT, "QuorumRejected");
+        event(DevOpsRegistry.NOMINATEPIPELINE_EVENT, "NominatePipeline");
+        event(DevOpsRegistry.RELEASEPIPELINE_EVENT, "ReleasePipeline");
+        event(DevOpsRegistry.PIPELINEVOTECAST_EVENT, "PipelineVoteCast");
+        event(DevOpsRegistry.PIPELINEACCEPTED_EVENT, "PipelineAccepted");
+        event(DevOpsRegistry.PIPELINEREJECTED_EVENT, "PipelineRejected");
+    }
+
+    private final Web3j web3j;
+    private final String registryAddress;
+    private final int concurrency;
+    private final AtomicLong chunkSize = new AtomicLong(RegistryWatcher.MAX_BLOCK_RANGE);
+    private final AtomicLong refusedSize = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong chunks = new AtomicLong();
+
+    RegistryEventExport(Web3j web3j, String registryAddress, int concurrency) {
+        this.web3j = web3j;
+        this.registryAddress = registryAddress;
+        this.concurrency = clampConcurrency(concurrency);
+    }
+
+    /**
+     * @return {@code concurrency} between 1 and {@link #MAX_CONCURRENCY}
+     */
+    static int clampConcurrency(int concurrency) {
+        return Math.max(1, Math.min(MAX_CONCURRENCY, concurrency));
+    }
+
+    private static void event(Event event, String name) {
+        EVENTS.put(EventEncoder.encode(event), event);
+        NAMES.put(event, name);
+    }
+
+    /**
+     * @param fromBlock first block to export
+     * @param toBlock   last block to export
+     * @param csv       {@code true} for CSV with a header line, {@code false} for one JSON object per line
+     * @param out       where to write the events
+     * @return the number of events written
+     */
+    long export(BigInteger fromBlock, BigInteger toBlock, boolean csv, PrintStream out) throws IOException, InterruptedException {
+        if (csv) {
+            out.println(CSV_HEADER);
+        }
+        long written = 0;
+        Deque<Future<List<Log>>> inFlight = new ArrayDeque<>();
+        BigInteger next = fromBlock;
+        try {
+            while (next.compareTo(toBlock) <= 0 || !inFlight.isEmpty()) {
+                while (inFlight.size() < concurrency && next.compareTo(toBlock) <= 0) {
+                    BigInteger start = next;
+                    BigInteger end = toBlock.min(start.add(BigInteger.valueOf(chunkSize.get() - 1)));
+                    inFlight.add(EthOpsExecutor.get().submit(() -> fetch(start, end)));
+                    next = end.add(BigInteger.ONE);
+                }
+                List<Log> logs = get(inFlight.removeFirst());
+                logs.sort(Comparator.comparing(Log::getBlockNumber).thenComparing(Log::getLogIndex));
+                for (Log log : logs) {
+                    Map<String, Object> row = decode(log);
+                    if (row != null) {
+                        out.println(csv ? csv(row) : JSONObject.fromObject(row).toString());
+                        written++;
+                    }
+                }
+            }
+        } finally {
+            for (Future<List<Log>> chunk : inFlight) {
+                chunk.cancel(true);
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * @return the number of {@code eth_getLogs} calls made so far
+     */
+    long getChunks() {
+        return chunks.get();
+    }
+
+    private List<Log> fetch(BigInteger fromBlock, BigInteger toBlock) throws IOException {
+        long size = toBlock.subtract(fromBlock).longValueExact() + 1;
+        try {
+            chunks.incrementAndGet();
+            List<Log> logs = RegistryWatcher.getLogs(web3j, new EthFilter(DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(toBlock), registryAddress));
+            long limit = Math.min(MAX_CHUNK, refusedSize.get() - 1);
+            chunkSize.accumulateAndGet(size, (current, succeeded) -> succeeded < current ? current : Math.max(current, Math.min(limit, succeeded * 2)));
+            return logs;
+        } catch (IOException e) {
+            if (size == 1 || !isRangeLimit(e)) {
+                throw e;
+            }
+            refusedSize.accumulateAndGet(size, Math::min);
+            chunkSize.accumulateAndGet(size / 2, Math::min);
+            BigInteger middle = fromBlock.add(BigInteger.valueOf(size / 2 - 1));
+            List<Log> logs = new ArrayList<>(fetch(fromBlock, middle));
+            logs.addAll(fetch(middle.add(BigInteger.ONE), toBlock));
+            return logs;
+        }
+    }
+
+    static boolean isRangeLimit(IOException e) {
+        if (e instanceof SocketTimeoutException) {
+            return true;
+        }
+        String message = e.getMessage();
+        return message != null && RANGE_LIMIT.matcher(message).matches() && !RATE_LIMIT.matcher(message).matches();
+    }
+
+    private static List<Log> get(Future<List<Log>> chunk) throws IOException, InterruptedException {
+        try {
+            return chunk.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the columns of {@link #CSV_HEADER} that the event has, {@code null} for logs of unknown events
+     * @throws IOException if the log of a known event cannot be decoded, see {@link RegistryEvents#decode}
+     */
+    static Map<String, Object> decode(Log log) throws IOException {
+        Event event = log.getTopics().isEmpty() ? null : EVENTS.get(log.getTopics().get(0));
+        if (event == null) {
+            return null;
+        }
+        EventValues values = RegistryEvents.decode(event, log);
+        List<Type> parameters = new ArrayList<>(values.getIndexedValues());
+        parameters.addAll(values.getNonIndexedValues());
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("block", log.getBlockNumber());
+        row.put("logIndex", log.getLogIndex());
+        row.put("transactionHash", log.getTransactionHash());
+        row.put("event", NAMES.get(event));
+        int i = 0;
+        if (event == DevOpsRegistry.ROLEBINDINGVOTECAST_EVENT || event == DevOpsRegistry.VERSIONVOTECAST_EVENT
+                || event == DevOpsRegistry.DEPLOYMENTVOTECAST_EVENT || event == DevOpsRegistry.QUORUMVOTECAST_EVENT
+                || event == DevOpsRegistry.PIPELINEVOTECAST_EVENT) {
+            row.put("voter", value(parameters.get(i++)));
+        }
+        if (i < parameters.size() && !(parameters.get(i).getValue() instanceof Boolean) && !(parameters.get(i).getValue() instanceof BigInteger)) {
+            row.put("subject", value(parameters.get(i++)));
+        }
+        if (i < parameters.size() && parameters.get(i).getValue() instanceof Boolean) {
+            row.put("accepted", parameters.get(i++).getValue());
+        }
+        if (i < parameters.size() && parameters.get(i).getValue() instanceof BigInteger) {
+            row.put("quorum", parameters.get(i).getValue());
+        }
+        return row;
+    }
+
+    private static Object value(Type<?> value) {
+        if (value.getValue() instanceof byte[]) {
+            return Hex.encodeHexString((byte[]) value.getValue());
+        }
+        return value.getValue();
+    }
+
+    private static String csv(Map<String, Object> row) {
+        StringBuilder line = new StringBuilder();
+        for (String column : CSV_HEADER.split(",")) {
+            if (line.length() > 0) {
+                line.append(',');
+            }
+            Object value = row.get(column);
+            if (value != null) {
+                // all values are numbers, hex strings, names or booleans, none needs quoting
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package io.jenkins.plugins.dapps;
+
+import org.web3j.abi.EventValues;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.tx.Contract;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes the events of a DevOpsRegistry, including those of registries deployed before the event parameters were
+ * indexed. These emit the same events with every parameter in the data; the topic hash does not depend on the
+ * indexing, so the number of topics tells the layouts apart. The indexed parameters come first in every event, so
+ * the leading values of such a log are returned as the indexed ones.
+ */
+final class RegistryEvents {
+    private static final Map<Event, Event> UNINDEXED = new ConcurrentHashMap<>();
+
+    private RegistryEvents() {
+    }
+
+    /**
+     * @param event the event the first topic of the log names
+     * @return the values of the log, split into indexed and other values as in the current event
+     * @throws IOException if the log has neither the current nor the unindexed layout
+     */
+    static EventValues decode(Event event, Log log) throws IOException {
+        int indexed = event.getIndexedParameters().size();
+        if (log.getTopics().size() == indexed + 1) {
+            EventValues values = Contract.staticExtractEventParameters(event, log);
+            if (values != null) {
+                return values;
+            }
+        } else if (log.getTopics().size() == 1) {
+            EventValues values = Contract.staticExtractEventParameters(UNINDEXED.computeIfAbsent(event, RegistryEvents::unindexed), log);
+            if (values != null && values.getNonIndexedValues().size() == event.getParameters().size()) {
+                List<Type> all = values.getNonIndexedValues();
+                return new EventValues(new ArrayList<>(all.subList(0, indexed)), new ArrayList<>(all.subList(indexed, all.size())));
+            }
+        }
+        throw new IOException("Cannot decode " + event.getName() + " with " + (log.getTopics().size() - 1) + " topics in transaction "
+                + log.getTransactionHash());
+    }
+
+    private static Event unindexed(Event event) {
+        List<TypeReference<?>> parameters = new ArrayList<>();
+        for (TypeReference<Type> parameter : event.getParameters()) {
+            try {
+                parameters.add(TypeReference.create(parameter.getClassType()));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return new Event(event.getName(), parameters);
+    }
+}
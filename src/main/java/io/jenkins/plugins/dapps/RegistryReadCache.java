@@ -0,0 +1,96 @@
+package io.jenkins.plugins.dapps;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache for the reads of one DevOpsRegistry.
+ * <p>
+ * Values expire after the TTL, terminal values after a longer one. The {@link RegistryWatcher} owning the cache
+ * invalidates values on the events of the registry it sees; the terminal TTL covers the events it does not follow.
+ *
+ * @param <V> type of the cached values, {@code null} values are cached as well
+ */
+final class RegistryReadCache<V> {
+    private final long ttlNanos;
+    private final long terminalTtlNanos;
+    private final Map<String, Entry<V>> entries;
+    private long modifications;
+
+    /**
+     * @param maxEntries entries kept before the least recently used one is evicted
+     * @param ttlNanos         lifetime of values that are not terminal
+     * @param terminalTtlNanos lifetime of terminal values
+     */
+    RegistryReadCache(int maxEntries, long ttlNanos, long terminalTtlNanos) {
+        this.ttlNanos = ttlNanos;
+        this.terminalTtlNanos = terminalTtlNanos;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the entry for the key, or {@code null} if there is none or it expired
+     */
+    synchronized Entry<V> get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.isExpired()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return a stamp to pass to {@link #putIfUnmodified} after reading a value from the node
+     */
+    synchronized long stamp() {
+        return modifications;
+    }
+
+    /**
+     * Caches a value read from the node, unless an event changed the cache while it was read.
+     *
+     * @param stamp    the result of {@link #stamp()} before the read
+     * @param terminal whether the value is kept for the terminal TTL
+     */
+    synchronized void putIfUnmodified(long stamp, String key, V value, boolean terminal) {
+        if (stamp == modifications) {
+            entries.put(key, new Entry<>(value, System.nanoTime() + (terminal ? terminalTtlNanos : ttlNanos)));
+        }
+    }
+
+    /**
+     * Caches a terminal value seen in an event.
+     */
+    synchronized void putTerminal(String key, V value) {
+        modifications++;
+        entries.put(key, new Entry<>(value, System.nanoTime() + terminalTtlNanos));
+    }
+
+    /**
+     * Drops the value of the key after an event changed it.
+     */
+    synchronized void invalidate(String key) {
+        modifications++;
+        entries.remove(key);
+    }
+
+    static final class Entry<V> {
+        final V value;
+        private final long expires;
+
+        Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expires > 0;
+        }
+    }
+}
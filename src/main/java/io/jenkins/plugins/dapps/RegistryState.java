@@ -0,0 +1,476 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.commons.codec.binary.Hex;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.verb.GET;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.EventValues;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Proposals, tallies and voters of one DevOpsRegistry, built from its events and served read-only over HTTP.
+ * <p>
+ * The state is filled from the last {@code backfillBlocks} blocks when it is first requested and then kept up to date
+ * by the {@link RegistryWatcher}, so any number of clients is served without calls to the node. Every change
+ * increments the version, which is the ETag of all responses and the position clients pass as {@code since} to wait
+ * for, or stream, later changes. Voters are the ones seen in events; initial voters that never voted are unknown.
+ */
+public class RegistryState implements RegistryWatcher.LogListener {
+    private static final Logger LOGGER = Logger.getLogger(RegistryState.class.getName());
+
+    static final long BACKFILL_BLOCKS = SystemProperties.getLong(RegistryState.class.getName() + ".backfillBlocks", 10000L);
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Proposals kept per registry, the oldest decided ones are dropped first.
+     */
+    static final int MAX_PROPOSALS = SystemProperties.getInteger(RegistryState.class.getName() + ".maxProposals", 10000);
+
+    /**
+     * Longest time a long-poll request waits for a change.
+     */
+    static final long MAX_WAIT_SECONDS = 60;
+
+    /**
+     * Longest time an event stream stays open, clients reconnect with {@code Last-Event-ID}.
+     */
+    static final long MAX_STREAM_SECONDS = SystemProperties.getLong(RegistryState.class.getName() + ".maxStreamSeconds", 300L);
+
+    private static final Map<String, Event> EVENTS = new HashMap<>();
+
+    static {
+        for (Event event : List.of(DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT, DevOpsRegistry.DEPLOYMENTPROPOSALCREATED_EVENT,
+                DevOpsRegistry.VERSIONVOTECAST_EVENT, DevOpsRegistry.DEPLOYMENTVOTECAST_EVENT, DevOpsRegistry.ROLEBINDINGVOTECAST_EVENT,
+                DevOpsRegistry.QUORUMVOTECAST_EVENT, DevOpsRegistry.VERSIONACCEPTED_EVENT, DevOpsRegistry.VERSIONREJECTED_EVENT,
+                DevOpsRegistry.DEPLOYMENTACCEPTED_EVENT, DevOpsRegistry.DEPLOYMENTREJECTED_EVENT, DevOpsRegistry.NOMINATEVOTER_EVENT,
+                DevOpsRegistry.RELEASEVOTER_EVENT, DevOpsRegistry.ROLEBINDINGACCEPTED_EVENT, DevOpsRegistry.ROLEBINDINGREJECTED_EVENT)) {
+            EVENTS.put(EventEncoder.encode(event), event);
+        }
+    }
+
+    private final Web3j web3j;
+    private final String registryAddress;
+    // distinguishes the versions of this state from those served before a restart
+    private final String instance = UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<String, Proposal> proposals = new LinkedHashMap<>();
+    private final Set<String> voters = new TreeSet<>();
+    private long version;
+    private long votersVersion;
+    private BigInteger coveredBlock;
+    private boolean ready;
+    private IOException failure;
+    private volatile long lastAccess = System.nanoTime();
+
+    RegistryState(Web3j web3j, String registryAddress) {
+        this.web3j = web3j;
+        this.registryAddress = registryAddress;
+    }
+
+    /**
+     * Reads the recent history of the registry.
+     */
+    void backfill() throws IOException {
+        try {
+            BigInteger head = web3j.ethBlockNumber().send().getBlockNumber();
+            BigInteger fromBlock = head.subtract(BigInteger.valueOf(BACKFILL_BLOCKS)).max(BigInteger.ZERO);
+            synchronized (this) {
+                coveredBlock = fromBlock.subtract(BigInteger.ONE);
+            }
+            fetch(fromBlock, head);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            ready = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the request that started following the registry has read its recent history.
+     *
+     * @throws IOException if reading the history failed
+     */
+    synchronized void awaitBackfill() throws IOException, InterruptedException {
+        while (!ready) {
+            if (failure != null) {
+                throw new IOException("Could not read the history of the DevOpsRegistry at " + registryAddress, failure);
+            }
+            wait();
+        }
+    }
+
+    private void fetch(BigInteger fromBlock, BigInteger toBlock) throws IOException {
+        while (fromBlock.compareTo(toBlock) <= 0) {
+            BigInteger chunkEnd = toBlock.min(fromBlock.add(BigInteger.valueOf(RegistryWatcher.MAX_BLOCK_RANGE - 1)));
+            List<Log> logs = RegistryWatcher.getLogs(web3j, new EthFilter(DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(chunkEnd), registryAddress));
+            apply(chunkEnd, logs);
+            fromBlock = chunkEnd.add(BigInteger.ONE);
+        }
+    }
+
+    @Override
+    public void onLogs(RegistryWatcher watcher, BigInteger fromBlock, BigInteger toBlock, List<Log> logs) {
+        BigInteger gapStart;
+        synchronized (this) {
+            gapStart = coveredBlock.add(BigInteger.ONE);
+        }
+        if (gapStart.compareTo(fromBlock) < 0) {
+            // the watcher started following after the backfill read the head
+            try {
+                fetch(gapStart, fromBlock.subtract(BigInteger.ONE));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the logs before block " + fromBlock, e);
+            }
+        }
+        apply(toBlock, logs);
+    }
+
+    private synchronized void apply(BigInteger toBlock, List<Log> logs) {
+        for (Log log : logs) {
+            if (log.getBlockNumber().compareTo(coveredBlock) > 0) {
+                apply(log);
+            }
+        }
+        coveredBlock = coveredBlock.max(toBlock);
+        notifyAll();
+    }
+
+    private void apply(Log log) {
+        Event event = log.getTopics().isEmpty() ? null : EVENTS.get(log.getTopics().get(0));
+        if (event == null) {
+            return;
+        }
+        EventValues values;
+        try {
+            values = RegistryEvents.decode(event, log);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Skipping an event of the DevOpsRegistry at " + registryAddress, e);
+            return;
+        }
+        List<Type> indexed = values.getIndexedValues();
+        List<Type> data = values.getNonIndexedValues();
+        long block = log.getBlockNumber().longValue();
+        if (event == DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT) {
+            created("version", bytes20(indexed.get(0)), block);
+        } else if (event == DevOpsRegistry.DEPLOYMENTPROPOSALCREATED_EVENT) {
+            created("deployment", address(indexed.get(0)), block);
+        } else if (event == DevOpsRegistry.NOMINATEVOTER_EVENT) {
+            created("nomination", address(indexed.get(0)), block);
+        } else if (event == DevOpsRegistry.RELEASEVOTER_EVENT) {
+            created("release", address(indexed.get(0)), block);
+        } else if (event == DevOpsRegistry.VERSIONVOTECAST_EVENT) {
+            voted(address(indexed.get(0)), proposal("version", bytes20(indexed.get(1)), block), (Boolean) data.get(0).getValue());
+        } else if (event == DevOpsRegistry.DEPLOYMENTVOTECAST_EVENT) {
+            voted(address(indexed.get(0)), proposal("deployment", address(indexed.get(1)), block), (Boolean) data.get(0).getValue());
+        } else if (event == DevOpsRegistry.ROLEBINDINGVOTECAST_EVENT) {
+            voted(address(indexed.get(0)), roleBinding(address(indexed.get(1)), block), (Boolean) data.get(0).getValue());
+        } else if (event == DevOpsRegistry.QUORUMVOTECAST_EVENT) {
+            voted(address(indexed.get(0)), null, false);
+        } else if (event == DevOpsRegistry.VERSIONACCEPTED_EVENT || event == DevOpsRegistry.VERSIONREJECTED_EVENT) {
+            decided(proposal("version", bytes20(indexed.get(0)), block), event == DevOpsRegistry.VERSIONACCEPTED_EVENT, block);
+        } else if (event == DevOpsRegistry.DEPLOYMENTACCEPTED_EVENT || event == DevOpsRegistry.DEPLOYMENTREJECTED_EVENT) {
+            decided(proposal("deployment", address(indexed.get(0)), block), event == DevOpsRegistry.DEPLOYMENTACCEPTED_EVENT, block);
+        } else if (event == DevOpsRegistry.ROLEBINDINGACCEPTED_EVENT || event == DevOpsRegistry.ROLEBINDINGREJECTED_EVENT) {
+            Proposal proposal = roleBinding(address(indexed.get(0)), block);
+            boolean accepted = event == DevOpsRegistry.ROLEBINDINGACCEPTED_EVENT;
+            decided(proposal, accepted, block);
+            if (accepted) {
+                changeVoter(proposal.id, proposal.type.equals("nomination"));
+            }
+        }
+    }
+
+    private void created(String type, String id, long block) {
+        Proposal proposal = new Proposal(type, id, block);
+        // a proposal created again starts over
+        proposals.remove(type + ":" + id);
+        proposals.put(type + ":" + id, proposal);
+        proposal.version = ++version;
+        if (proposals.size() > MAX_PROPOSALS) {
+            proposals.values().stream().filter(oldest -> !oldest.state.equals("active")).findFirst()
+                    .ifPresent(oldest -> proposals.remove(oldest.type + ":" + oldest.id));
+        }
+    }
+
+    private Proposal proposal(String type, String id, long block) {
+        // created before the backfilled blocks
+        return proposals.computeIfAbsent(type + ":" + id, key -> new Proposal(type, id, block));
+    }
+
+    private Proposal roleBinding(String candidate, long block) {
+        Proposal release = proposals.get("release:" + candidate);
+        Proposal nomination = proposals.get("nomination:" + candidate);
+        if (release != null && (nomination == null || release.createdBlock > nomination.createdBlock)) {
+            return release;
+        }
+        return nomination != null ? nomination : proposal("nomination", candidate, block);
+    }
+
+    private void voted(String voter, Proposal proposal, boolean accept) {
+        if (voters.add(voter)) {
+            votersVersion = ++version;
+        }
+        if (proposal != null) {
+            if (accept) {
+                proposal.positive++;
+            } else {
+                proposal.negative++;
+            }
+            proposal.version = ++version;
+        }
+    }
+
+    private void decided(Proposal proposal, boolean accepted, long block) {
+        proposal.state = accepted ? "accepted" : "rejected";
+        proposal.decidedBlock = block;
+        proposal.version = ++version;
+    }
+
+    private void changeVoter(String voter, boolean add) {
+        if (add ? voters.add(voter) : voters.remove(voter)) {
+            votersVersion = ++version;
+        }
+    }
+
+    private static String bytes20(Type<?> value) {
+        return Hex.encodeHexString((byte[]) value.getValue());
+    }
+
+    private static String address(Type<?> value) {
+        return ((String) value.getValue()).toLowerCase(Locale.ROOT);
+    }
+
+    String getRegistryAddress() {
+        return registryAddress;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Summary of the registry.
+     */
+    @GET
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        JSONObject json;
+        synchronized (this) {
+            json = header()
+                    .element("proposals", proposals.size())
+                    .element("voters", voters.size());
+        }
+        respond(req, rsp, json);
+    }
+
+    /**
+     * Proposals, newest first. Query parameters: {@code type}, {@code state}, {@code offset}, {@code limit}, and
+     * {@code since} with an optional {@code wait} in seconds to get only the proposals changed after that version,
+     * waiting for the first change if there is none yet.
+     */
+    @GET
+    public void doProposals(StaplerRequest req, StaplerResponse rsp) throws IOException, InterruptedException {
+        String type = req.getParameter("type");
+        String state = req.getParameter("state");
+        long since = longParameter(req, "since", -1);
+        int offset = (int) Math.max(0, longParameter(req, "offset", 0));
+        int limit = (int) Math.min(MAX_PAGE_SIZE, Math.max(1, longParameter(req, "limit", 100)));
+        if (since >= 0) {
+            awaitChange(since, TimeUnit.SECONDS.toNanos(Math.min(MAX_WAIT_SECONDS, longParameter(req, "wait", 0))));
+        }
+        JSONObject json;
+        synchronized (this) {
+            List<Proposal> matching = proposals.values().stream()
+                    .filter(proposal -> type == null || proposal.type.equals(type))
+                    .filter(proposal -> state == null || proposal.state.equals(state))
+                    .filter(proposal -> proposal.version > since)
+                    .sorted(since >= 0 ? Comparator.comparingLong(proposal -> proposal.version)
+                            : Comparator.<Proposal>comparingLong(proposal -> proposal.createdBlock).reversed())
+                    .collect(Collectors.toList());
+            JSONArray items = new JSONArray();
+            for (Proposal proposal : matching.subList(Math.min(offset, matching.size()), Math.min(offset + limit, matching.size()))) {
+                items.element(proposal.toJson());
+            }
+            json = header()
+                    .element("total", matching.size())
+                    .element("offset", offset)
+                    .element("limit", limit)
+                    .element("items", items);
+        }
+        respond(req, rsp, json);
+    }
+
+    /**
+     * Voters seen in the events of the registry.
+     */
+    @GET
+    public void doVoters(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        JSONObject json;
+        synchronized (this) {
+            json = header().element("voters", JSONArray.fromObject(new ArrayList<>(voters)));
+        }
+        respond(req, rsp, json);
+    }
+
+    /**
+     * Server-sent events for every changed proposal and voter set, starting after {@code since} or the
+     * {@code Last-Event-ID} of a reconnecting client.
+     */
+    @GET
+    public void doEvents(StaplerRequest req, StaplerResponse rsp) throws IOException, InterruptedException {
+        long since = req.getHeader("Last-Event-ID") != null ? parseLong(req.getHeader("Last-Event-ID"), -1) : longParameter(req, "since", -1);
+        if (since < 0) {
+            synchronized (this) {
+                since = version;
+            }
+        }
+        rsp.setContentType("text/event-stream;charset=UTF-8");
+        rsp.setHeader("Cache-Control", "no-cache");
+        PrintWriter writer = rsp.getWriter();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(MAX_STREAM_SECONDS);
+        while (deadline - System.nanoTime() > 0) {
+            // ordered by version, which is the event ID
+            Map<Long, String> events = new TreeMap<>();
+            synchronized (this) {
+                if (version <= since) {
+                    wait(TimeUnit.SECONDS.toMillis(15));
+                }
+                for (Proposal proposal : proposals.values()) {
+                    if (proposal.version > since) {
+                        events.put(proposal.version, "event: proposal\ndata: " + proposal.toJson());
+                    }
+                }
+                if (votersVersion > since) {
+                    events.put(votersVersion, "event: voters\ndata: " + JSONArray.fromObject(new ArrayList<>(voters)));
+                }
+                since = version;
+                lastAccess = System.nanoTime();
+            }
+            // a comment keeps idle connections open and tells whether the client is gone
+            if (events.isEmpty()) {
+                writer.write(":\n\n");
+            }
+            for (Map.Entry<Long, String> event : events.entrySet()) {
+                writer.write("id: " + event.getKey() + "\n" + event.getValue() + "\n\n");
+            }
+            writer.flush();
+            if (writer.checkError()) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void awaitChange(long since, long waitNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + waitNanos;
+        while (version <= since) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    private JSONObject header() {
+        return new JSONObject()
+                .element("registry", registryAddress)
+                .element("version", version)
+                .element("block", coveredBlock.longValue());
+    }
+
+    private void respond(StaplerRequest req, StaplerResponse rsp, JSONObject json) throws IOException {
+        lastAccess = System.nanoTime();
+        String etag = "\"" + instance + "-" + json.get("version") + "\"";
+        rsp.setHeader("ETag", etag);
+        rsp.setHeader("Cache-Control", "no-cache");
+        if (etag.equals(req.getHeader("If-None-Match"))) {
+            rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().write(json.toString());
+    }
+
+    private static long longParameter(StaplerRequest req, String name, long defaultValue) {
+        return parseLong(req.getParameter(name), defaultValue);
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static final class Proposal {
+        private final String type;
+        private final String id;
+        private final long createdBlock;
+        private String state = "active";
+        private long decidedBlock = -1;
+        private int positive;
+        private int negative;
+        private long version;
+
+        Proposal(String type, String id, long createdBlock) {
+            this.type = type;
+            this.id = id;
+            this.createdBlock = createdBlock;
+        }
+
+        JSONObject toJson() {
+            JSONObject json = new JSONObject()
+                    .element("type", type)
+                    .element("id", id)
+                    .element("state", state)
+                    .element("positiveVotes", positive)
+                    .element("negativeVotes", negative)
+                    .element("createdBlock", createdBlock)
+                    .element("version", version);
+            if (decidedBlock >= 0) {
+                json.element("decidedBlock", decidedBlock);
+            }
+            return json;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.util.FormValidation;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGetCode;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-chain checks for the builder forms: is a DevOpsRegistry deployed at the address, and may the selected key
+ * use it.
+ * <p>
+ * Results are cached per node for {@code ttl} seconds. An expired result is still returned while it is refreshed in
+ * the background, so the config page never waits for the node after the first check and typing does not cause a
+ * call per keystroke. Results that have not been asked for during ten TTLs are dropped, and at most
+ * {@code cacheSize} results are kept. The voter and pipeline reads of a registry are dropped early when a
+ * {@link RegistryWatcher} following it sees a voter or pipeline being accepted.
+ * <p>
+ * The deployed code is recognized by the functions its dispatcher knows rather than by its hash, so registries
+ * compiled by another solc, or deployed by older versions of this plugin, are recognized as well. Other code is only
+ * reported as a warning.
+ */
+public final class RegistryValidation {
+    private static final Logger LOGGER = Logger.getLogger(RegistryValidation.class.getName());
+
+    static final long TTL = SystemProperties.getLong(RegistryValidation.class.getName() + ".ttl", 60L);
+
+    /**
+     * Maximum number of cached results.
+     */
+    static final int CACHE_SIZE = SystemProperties.getInteger(RegistryValidation.class.getName() + ".cacheSize", 1024);
+
+    /**
+     * Selectors of the functions the plugin calls that the dispatcher of every version of the DevOpsRegistry knows.
+     * {@code pipelines(address)} is missing, as older registries only have the main pipeline.
+     */
+    static final List<String> DISPATCHED = List.of(
+            DevOpsRegistryCodec.VERSION_PROPOSAL_ACCEPTED, DevOpsRegistryCodec.VERSION_PROPOSAL_REJECTED,
+            DevOpsRegistryCodec.DEPLOYMENT_PROPOSAL_ACCEPTED, DevOpsRegistryCodec.DEPLOYMENT_PROPOSAL_REJECTED,
+            DevOpsRegistryCodec.VOTERS, DevOpsRegistryCodec.MAIN_PIPELINE,
+            DevOpsRegistryCodec.CREATE_VERSION_PROPOSAL, DevOpsRegistryCodec.CREATE_DEPLOYMENT_PROPOSAL,
+            DevOpsRegistryCodec.VOTE_VERSION_PROPOSAL, DevOpsRegistryCodec.VOTE_DEPLOYMENT_PROPOSAL);
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private enum Code {
+        NONE, REGISTRY, OTHER
+    }
+
+    private RegistryValidation() {
+    }
+
+    /**
+     * @return an error if the code at the address is not the DevOpsRegistry, a warning if the node cannot be reached
+     */
+    public static FormValidation checkRegistry(String nodeUrl, String registryAddress) {
+        if (nodeUrl == null || nodeUrl.isEmpty()) {
+            return FormValidation.ok();
+        }
+        try {
+            Code code = code(nodeUrl, registryAddress);
+            if (code == Code.NONE) {
+                return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_noDevOpsRegistry());
+            }
+            if (code == Code.OTHER) {
+                return FormValidation.warning(Messages.DappMainBuilder_DescriptorImpl_warnings_unknownRegistryCode());
+            }
+        } catch (IOException e) {
+            return FormValidation.warning(Messages.DappMainBuilder_DescriptorImpl_warnings_nodeUnreachable(e.getMessage()));
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * @return an error if the account is not amongst the pipelines of the DevOpsRegistry at the address
+     */
+    public static FormValidation checkPipeline(String nodeUrl, String registryAddress, String account) {
+        if (nodeUrl == null || nodeUrl.isEmpty()) {
+            return FormValidation.ok();
+        }
+        try {
+            if (code(nodeUrl, registryAddress) == Code.NONE) {
+                // reported on the address field
+                return FormValidation.ok();
+            }
+            Boolean pipeline = cached("pipeline|" + nodeUrl + "|" + registryAddress.toLowerCase(Locale.ROOT) + "|" + account.toLowerCase(Locale.ROOT),
+                    () -> isPipeline(Web3jClients.get(nodeUrl), registryAddress, account));
+            if (!Boolean.TRUE.equals(pipeline)) {
+                return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_notPipeline());
+            }
+        } catch (IOException e) {
+            return FormValidation.warning(Messages.DappMainBuilder_DescriptorImpl_warnings_nodeUnreachable(e.getMessage()));
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * Registries deployed before the PipelineProposals have no {@code pipelines(address)} and only the main pipeline.
+     */
+    private static Boolean isPipeline(Web3j web3j, String registryAddress, String account) throws IOException {
+        Boolean pipeline = DevOpsRegistryCodec.callBool(web3j, registryAddress, DevOpsRegistryCodec.encodePipelines(account));
+        if (pipeline != null) {
+            return pipeline;
+        }
+        String mainPipeline = DevOpsRegistryCodec.call(web3j, registryAddress, DevOpsRegistryCodec.encodeMainPipeline());
+        if (mainPipeline == null) {
+            return null;
+        }
+        try {
+            return DevOpsRegistryCodec.decodeAddress(mainPipeline).equalsIgnoreCase(Numeric.prependHexPrefix(account));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return an error if the account is not amongst the voters of the DevOpsRegistry at the address
+     */
+    public static FormValidation checkVoter(String nodeUrl, String registryAddress, String account) {
+        if (nodeUrl == null || nodeUrl.isEmpty()) {
+            return FormValidation.ok();
+        }
+        try {
+            if (code(nodeUrl, registryAddress) == Code.NONE) {
+                return FormValidation.ok();
+            }
+            Boolean voter = cached("voter|" + nodeUrl + "|" + registryAddress.toLowerCase(Locale.ROOT) + "|" + account.toLowerCase(Locale.ROOT),
+                    () -> DevOpsRegistryCodec.callBool(Web3jClients.get(nodeUrl), registryAddress, DevOpsRegistryCodec.encodeVoters(account)));
+            if (!Boolean.TRUE.equals(voter)) {
+                return FormValidation.error(Messages.DappMainBuilder_DescriptorImpl_errors_notVoter());
+            }
+        } catch (IOException e) {
+            return FormValidation.warning(Messages.DappMainBuilder_DescriptorImpl_warnings_nodeUnreachable(e.getMessage()));
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * @return whether voter or pipeline reads of the registry are cached
+     */
+    static boolean hasMembershipReads(String registryAddress) {
+        return CACHE.keySet().stream().anyMatch(key -> isMembershipRead(key, registryAddress));
+    }
+
+    /**
+     * Drops the cached voter and pipeline reads of the registry after a voter or pipeline was accepted.
+     */
+    static void membersChanged(String registryAddress) {
+        CACHE.keySet().removeIf(key -> isMembershipRead(key, registryAddress));
+    }
+
+    private static boolean isMembershipRead(String key, String registryAddress) {
+        return (key.startsWith("voter|") || key.startsWith("pipeline|")) && key.contains("|" + registryAddress.toLowerCase(Locale.ROOT) + "|");
+    }
+
+    private static Code code(String nodeUrl, String registryAddress) throws IOException {
+        return cached("code|" + nodeUrl + "|" + registryAddress.toLowerCase(Locale.ROOT), () -> {
+            EthGetCode ethGetCode = Web3jClients.get(nodeUrl).ethGetCode(registryAddress, DefaultBlockParameterName.LATEST).send();
+            if (ethGetCode.hasError()) {
+                throw new IOException(ethGetCode.getError().getMessage());
+            }
+            String code = Numeric.cleanHexPrefix(ethGetCode.getCode());
+            if (code.isEmpty()) {
+                return Code.NONE;
+            }
+            return isRegistry(code) ? Code.REGISTRY : Code.OTHER;
+        });
+    }
+
+    /**
+     * @param code hex encoded runtime code
+     * @return whether the dispatcher of the code knows the functions of every DevOpsRegistry
+     */
+    static boolean isRegistry(String code) {
+        String hex = code.toLowerCase(Locale.ROOT);
+        return DISPATCHED.stream().allMatch(selector -> hex.contains("63" + selector)); // PUSH4 <selector>
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cached(String key, Loader<T> loader) throws IOException {
+        Entry entry = CACHE.get(key);
+        if (entry == null) {
+            // not cached yet, the first check has to wait for the node
+            entry = new Entry(loader, RpcRateLimiter.sheddable(loader::load));
+            CACHE.values().removeIf(Entry::isIdle);
+            while (!CACHE.isEmpty() && CACHE.size() >= CACHE_SIZE) {
+                // drop the result that expired first
+                CACHE.entrySet().stream()
+                        .min(Comparator.comparingLong(e -> e.getValue().expires - System.nanoTime()))
+                        .ifPresent(e -> CACHE.remove(e.getKey(), e.getValue()));
+            }
+            CACHE.put(key, entry);
+        } else if (entry.isExpired() && entry.startRefresh()) {
+            Entry expired = entry;
+            Timer.get().submit(() -> refresh(key, expired));
+        }
+        return (T) entry.value;
+    }
+
+    private static void refresh(String key, Entry entry) {
+        try {
+            entry.value = RpcRateLimiter.sheddable(entry.loader::load);
+            entry.expires = System.nanoTime() + TimeUnit.SECONDS.toNanos(TTL);
+        } catch (IOException | RuntimeException e) {
+            // keep the old result, the next check tries again
+            LOGGER.log(Level.FINE, "Could not refresh " + key, e);
+        } finally {
+            entry.refreshing = false;
+        }
+    }
+
+    private interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    private static final class Entry {
+        private final Loader<?> loader;
+        private volatile Object value;
+        private volatile long expires;
+        private volatile boolean refreshing;
+
+        Entry(Loader<?> loader, Object value) {
+            this.loader = loader;
+            this.value = value;
+            this.expires = System.nanoTime() + TimeUnit.SECONDS.toNanos(TTL);
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expires > 0;
+        }
+
+        boolean isIdle() {
+            return System.nanoTime() - expires > TimeUnit.SECONDS.toNanos(10 * TTL);
+        }
+
+        synchronized boolean startRefresh() {
+            if (refreshing) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,718 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.util.SystemProperties;
+import org.apache.commons.codec.binary.Hex;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.Utils;
+import org.web3j.abi.datatypes.Event;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Controller-wide watcher for a single DevOpsRegistry.
+ * <p>
+ * Instead of every waiting build polling the node on its own, builds register a waiter for their proposal here.
+ * One background task per registry follows new blocks and the outcome events of the registry and completes the
+ * waiters of all builds at once, so the load on the node depends on the number of registries only.
+ * The task stops as soon as no waiter, {@link Listener} or {@link LogListener} is left.
+ * <p>
+ * The proposal keys are indexed in the events of the registry, so outcome logs are requested for the proposals
+ * that builds are waiting on only, and creation logs only while a listener is registered. Registries deployed before
+ * the keys were indexed carry them in the data of their events, so until the first event of the registry has shown
+ * which kind it is, the logs are requested by event only and filtered here.
+ * <p>
+ * Outcome reads are cached per registry. An accepted or rejected proposal only changes again when a pipeline
+ * proposes it anew, so decided outcomes are kept until a creation event for the proposal shows up, or for
+ * {@code decidedTtl} seconds in case the watcher did not follow the creation event. Undecided ones expire after
+ * {@code undecidedTtl} seconds or with the outcome event. Cached proposals are not followed on their own.
+ * <p>
+ * While {@link RegistryValidation} holds voter or pipeline reads of the registry, the watcher also requests the
+ * events accepting a voter or pipeline, and drops those reads when one shows up.
+ * <p>
+ * The watcher follows the chain from the head it saw when it started. A {@link Listener} that keeps track of
+ * {@link Listener#onBlocksFollowed the blocks it has seen} can ask for the proposals created since then when it
+ * registers, up to {@code maxBackfill} blocks back.
+ */
+public class RegistryWatcher {
+    private static final Logger LOGGER = Logger.getLogger(RegistryWatcher.class.getName());
+
+    /**
+     * Seconds between two looks at the chain head.
+     */
+    static final long POLL_INTERVAL = SystemProperties.getLong(RegistryWatcher.class.getName() + ".pollInterval", 15L);
+
+    /**
+     * Maximum number of blocks requested with a single eth_getLogs call.
+     */
+    static final long MAX_BLOCK_RANGE = SystemProperties.getLong(RegistryWatcher.class.getName() + ".maxBlockRange", 1000L);
+
+    /**
+     * Maximum number of outcomes cached per registry.
+     */
+    static final int CACHE_SIZE = SystemProperties.getInteger(RegistryWatcher.class.getName() + ".cacheSize", 1024);
+
+    /**
+     * Seconds an undecided outcome is cached.
+     */
+    static final long UNDECIDED_TTL = SystemProperties.getLong(RegistryWatcher.class.getName() + ".undecidedTtl", 5L);
+
+    /**
+     * Seconds a decided outcome is cached.
+     */
+    static final long DECIDED_TTL = SystemProperties.getLong(RegistryWatcher.class.getName() + ".decidedTtl", 600L);
+
+    /**
+     * Most blocks read for the proposals created before a listener was registered.
+     */
+    static final long MAX_BACKFILL = SystemProperties.getLong(RegistryWatcher.class.getName() + ".maxBackfill", 10000L);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "EthOps RegistryWatcher"));
+
+    private static final Map<String, RegistryWatcher> WATCHERS = new ConcurrentHashMap<>();
+
+    private static final Map<String, Event> OUTCOME_EVENTS = Map.of(
+            EventEncoder.encode(DevOpsRegistry.VERSIONACCEPTED_EVENT), DevOpsRegistry.VERSIONACCEPTED_EVENT,
+            EventEncoder.encode(DevOpsRegistry.VERSIONREJECTED_EVENT), DevOpsRegistry.VERSIONREJECTED_EVENT,
+            EventEncoder.encode(DevOpsRegistry.DEPLOYMENTACCEPTED_EVENT), DevOpsRegistry.DEPLOYMENTACCEPTED_EVENT,
+            EventEncoder.encode(DevOpsRegistry.DEPLOYMENTREJECTED_EVENT), DevOpsRegistry.DEPLOYMENTREJECTED_EVENT
+    );
+
+    private static final Map<String, Event> CREATED_EVENTS = Map.of(
+            EventEncoder.encode(DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT), DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT,
+            EventEncoder.encode(DevOpsRegistry.DEPLOYMENTPROPOSALCREATED_EVENT), DevOpsRegistry.DEPLOYMENTPROPOSALCREATED_EVENT
+    );
+
+    private static final Set<String> MEMBERSHIP_EVENTS = Set.of(
+            EventEncoder.encode(DevOpsRegistry.ROLEBINDINGACCEPTED_EVENT),
+            EventEncoder.encode(DevOpsRegistry.PIPELINEACCEPTED_EVENT)
+    );
+
+    private final Web3j web3j;
+    private final String registryAddress;
+    private final Map<String, Set<CompletableFuture<ProposalOutcome>>> waiters = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<LogListener> logListeners = new CopyOnWriteArrayList<>();
+    private final RegistryReadCache<ProposalOutcome> outcomes = new RegistryReadCache<>(CACHE_SIZE,
+            TimeUnit.SECONDS.toNanos(UNDECIDED_TTL), TimeUnit.SECONDS.toNanos(DECIDED_TTL));
+    private final Map<String, Integer> reading = new ConcurrentHashMap<>();
+
+    private ScheduledFuture<?> task;
+    private BigInteger nextBlock;
+    /**
+     * Whether the proposal keys are indexed in the events, {@code null} until an event of the registry was seen.
+     */
+    private volatile Boolean indexed;
+
+    RegistryWatcher(Web3j web3j, String registryAddress) {
+        this.web3j = web3j;
+        this.registryAddress = registryAddress;
+    }
+
+    /**
+     * @param nodeUrl         URL of the Ethereum node
+     * @param registryAddress address of the DevOpsRegistry
+     * @return the shared watcher for this registry
+     */
+    public static RegistryWatcher forRegistry(String nodeUrl, String registryAddress) {
+        String key = nodeUrl + "|" + registryAddress.toLowerCase(Locale.ROOT);
+        return WATCHERS.computeIfAbsent(key, k -> new RegistryWatcher(Web3jClients.get(nodeUrl), registryAddress));
+    }
+
+    public String getRegistryAddress() {
+        return registryAddress;
+    }
+
+    /**
+     * @param name git commit hash of the VersionProposal
+     * @return the outcome of the VersionProposal, {@code null} if it is not decided yet
+     */
+    public ProposalOutcome versionOutcome(byte[] name) throws IOException {
+        return outcome(versionKey(name), () -> TransactionPreflight.versionOutcome(web3j, registryAddress, name));
+    }
+
+    /**
+     * @param newDeployment address of the newly deployed contract
+     * @return the outcome of the DeploymentProposal, {@code null} if it is not decided yet
+     */
+    public ProposalOutcome deploymentOutcome(String newDeployment) throws IOException {
+        return outcome(deploymentKey(newDeployment), () -> TransactionPreflight.deploymentOutcome(web3j, registryAddress, newDeployment));
+    }
+
+    /**
+     * Forgets the cached outcome of a VersionProposal that this controller has just proposed again.
+     */
+    public void versionProposalCreated(byte[] name) {
+        outcomes.invalidate(versionKey(name));
+    }
+
+    /**
+     * Forgets the cached outcome of a DeploymentProposal that this controller has just proposed again.
+     */
+    public void deploymentProposalCreated(String newDeployment) {
+        outcomes.invalidate(deploymentKey(newDeployment));
+    }
+
+    private ProposalOutcome outcome(String key, RpcRateLimiter.IOCallable<ProposalOutcome> read) throws IOException {
+        RegistryReadCache.Entry<ProposalOutcome> cached = outcomes.get(key);
+        if (cached != null) {
+            return cached.value;
+        }
+        // follow the events of the proposal from before the read, so that none changing the result is missed
+        reading.merge(key, 1, Integer::sum);
+        try {
+            long stamp = outcomes.stamp();
+            ensureRunning();
+            ProposalOutcome outcome = read.call();
+            outcomes.putIfUnmodified(stamp, key, outcome, outcome != null);
+            return outcome;
+        } finally {
+            reading.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+            stopIfIdle();
+        }
+    }
+
+    /**
+     * Waits until the VersionProposal is accepted or rejected.
+     *
+     * @param name    git commit hash of the VersionProposal
+     * @param timeout maximum time to wait, {@code null} or zero to wait forever
+     * @return the outcome of the proposal
+     * @throws TimeoutException     if the proposal was not decided in time
+     * @throws InterruptedException if the waiting build was interrupted; the waiter is cancelled
+     */
+    public ProposalOutcome awaitVersionProposal(byte[] name, Duration timeout) throws IOException, InterruptedException, TimeoutException {
+        CompletableFuture<ProposalOutcome> waiter = register(versionKey(name), timeout);
+        // the proposal may have been decided before the waiter was registered, so look once
+        try {
+            ProposalOutcome outcome = versionOutcome(name);
+            if (outcome != null) {
+                waiter.complete(outcome);
+            }
+        } catch (IOException | RuntimeException e) {
+            waiter.cancel(false);
+            throw e;
+        }
+        return await(waiter);
+    }
+
+    /**
+     * Waits until the DeploymentProposal is accepted or rejected.
+     *
+     * @param newDeployment address of the newly deployed contract
+     * @param timeout       maximum time to wait, {@code null} or zero to wait forever
+     * @return the outcome of the proposal
+     * @throws TimeoutException     if the proposal was not decided in time
+     * @throws InterruptedException if the waiting build was interrupted; the waiter is cancelled
+     */
+    public ProposalOutcome awaitDeploymentProposal(String newDeployment, Duration timeout) throws IOException, InterruptedException, TimeoutException {
+        return await(deploymentProposalOutcome(newDeployment, timeout));
+    }
+
+    /**
+     * Like {@link #awaitDeploymentProposal}, but returns at once, so that several proposals can be waited for
+     * together.
+     *
+     * @return a future completing with the outcome, or exceptionally with a {@link TimeoutException}; cancel it to
+     * stop waiting
+     */
+    public CompletableFuture<ProposalOutcome> deploymentProposalOutcome(String newDeployment, Duration timeout) throws IOException {
+        CompletableFuture<ProposalOutcome> waiter = register(deploymentKey(newDeployment), timeout);
+        try {
+            ProposalOutcome outcome = deploymentOutcome(newDeployment);
+            if (outcome != null) {
+                waiter.complete(outcome);
+            }
+        } catch (IOException | RuntimeException e) {
+            waiter.cancel(false);
+            throw e;
+        }
+        return waiter;
+    }
+
+    /**
+     * Starts notifying the listener about new proposals in this registry.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        startFollowing();
+    }
+
+    /**
+     * Like {@link #addListener(Listener)}, and also tells the listener about the proposals created from
+     * {@code fromBlock} on, or from {@code maxBackfill} blocks before the head if that is later.
+     *
+     * @param listener  the listener to add
+     * @param fromBlock first block to report the proposals of
+     * @throws IOException if the earlier blocks could not be read; the listener is registered nonetheless
+     */
+    public void addListener(Listener listener, BigInteger fromBlock) throws IOException {
+        listeners.add(listener);
+        startFollowing();
+        BigInteger untilBlock;
+        synchronized (this) {
+            // the background task reports the blocks from here on
+            untilBlock = nextBlock;
+        }
+        if (untilBlock == null) {
+            throw new IOException("Could not read the chain head for the DevOpsRegistry at " + registryAddress);
+        }
+        BigInteger block = fromBlock.max(untilBlock.subtract(BigInteger.valueOf(MAX_BACKFILL)));
+        while (block.compareTo(untilBlock) < 0) {
+            BigInteger toBlock = untilBlock.subtract(BigInteger.ONE).min(block.add(BigInteger.valueOf(MAX_BLOCK_RANGE - 1)));
+            EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(block), DefaultBlockParameter.valueOf(toBlock), registryAddress);
+            filter.addOptionalTopics(CREATED_EVENTS.keySet().toArray(new String[0]));
+            for (Log log : RpcRateLimiter.sheddable(() -> getLogs(filter))) {
+                learnLayout(log);
+                dispatchCreated(log, List.of(listener));
+            }
+            block = toBlock.add(BigInteger.ONE);
+        }
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+        stopIfIdle();
+    }
+
+    /**
+     * Starts handing all logs of this registry to the listener. While a log listener is registered, the logs are
+     * requested without a topic filter, once for all listeners and waiters.
+     *
+     * @param listener the listener to add
+     */
+    public void addLogListener(LogListener listener) {
+        logListeners.add(listener);
+        startFollowing();
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public void removeLogListener(LogListener listener) {
+        logListeners.remove(listener);
+        stopIfIdle();
+    }
+
+    private void startFollowing() {
+        try {
+            ensureRunning();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read the chain head, following the DevOpsRegistry at " + registryAddress + " from the next poll", e);
+            synchronized (this) {
+                if (task == null) {
+                    task = SCHEDULER.scheduleWithFixedDelay(this::poll, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the background task follows the registry
+     */
+    synchronized boolean isFollowing() {
+        return task != null;
+    }
+
+    /**
+     * @return number of builds currently waiting on this registry
+     */
+    public int getWaiterCount() {
+        return waiters.values().stream().mapToInt(Set::size).sum();
+    }
+
+    CompletableFuture<ProposalOutcome> register(String key, Duration timeout) throws IOException {
+        CompletableFuture<ProposalOutcome> waiter = new CompletableFuture<>();
+        if (timeout != null && !timeout.isZero()) {
+            waiter.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        waiters.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(waiter);
+        waiter.whenComplete((outcome, throwable) -> unregister(key, waiter));
+        try {
+            ensureRunning();
+        } catch (IOException | RuntimeException e) {
+            waiter.cancel(false);
+            throw e;
+        }
+        return waiter;
+    }
+
+    private static ProposalOutcome await(CompletableFuture<ProposalOutcome> waiter) throws IOException, InterruptedException, TimeoutException {
+        try {
+            return waiter.get();
+        } catch (InterruptedException e) {
+            waiter.cancel(false);
+            throw e;
+        } catch (CancellationException e) {
+            throw new InterruptedException("Waiting for the proposal was cancelled");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw (TimeoutException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private synchronized void ensureRunning() throws IOException {
+        if (task != null && nextBlock != null) {
+            return;
+        }
+        try {
+            nextBlock = web3j.ethBlockNumber().send().getBlockNumber();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        if (task == null) {
+            task = SCHEDULER.scheduleWithFixedDelay(this::poll, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    private void unregister(String key, CompletableFuture<ProposalOutcome> waiter) {
+        waiters.computeIfPresent(key, (k, set) -> {
+            set.remove(waiter);
+            return set.isEmpty() ? null : set;
+        });
+        stopIfIdle();
+    }
+
+    private synchronized void stopIfIdle() {
+        if (waiters.isEmpty() && listeners.isEmpty() && logListeners.isEmpty() && reading.isEmpty() && task != null) {
+            task.cancel(false);
+            task = null;
+            nextBlock = null;
+        }
+    }
+
+    void poll() {
+        try {
+            RpcRateLimiter.sheddable(() -> {
+                followLogs();
+                return null;
+            });
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to follow the DevOpsRegistry at " + registryAddress + ", retrying with the next poll", e);
+        }
+    }
+
+    private void followLogs() throws IOException {
+        BigInteger head = web3j.ethBlockNumber().send().getBlockNumber();
+        BigInteger fromBlock;
+        synchronized (this) {
+            if (nextBlock == null) {
+                nextBlock = head;
+            }
+            fromBlock = nextBlock;
+        }
+        while (fromBlock.compareTo(head) <= 0) {
+            BigInteger toBlock = head.min(fromBlock.add(BigInteger.valueOf(MAX_BLOCK_RANGE - 1)));
+            if (!logListeners.isEmpty()) {
+                followAllLogs(fromBlock, toBlock);
+            } else {
+                followFilteredLogs(fromBlock, toBlock);
+            }
+            fromBlock = toBlock.add(BigInteger.ONE);
+            synchronized (this) {
+                nextBlock = fromBlock;
+            }
+            for (Listener listener : listeners) {
+                try {
+                    listener.onBlocksFollowed(this, toBlock);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Listener failed to handle the progress in " + registryAddress, e);
+                }
+            }
+        }
+    }
+
+    private void followAllLogs(BigInteger fromBlock, BigInteger toBlock) throws IOException {
+        List<Log> logs = getLogs(new EthFilter(DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(toBlock), registryAddress));
+        Set<String> keys = followedKeys();
+        for (Log log : logs) {
+            if (log.getTopics().isEmpty()) {
+                continue;
+            }
+            learnLayout(log);
+            if (!listeners.isEmpty()) {
+                dispatchCreated(log, listeners);
+            }
+            dispatchMembership(log);
+            // the same logs the filtered query would have returned
+            if (keys.contains(proposalKey(log))) {
+                dispatchProposal(log);
+            }
+        }
+        for (LogListener listener : logListeners) {
+            try {
+                listener.onLogs(this, fromBlock, toBlock, logs);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Listener failed to handle the logs of " + registryAddress, e);
+            }
+        }
+    }
+
+    private void followFilteredLogs(BigInteger fromBlock, BigInteger toBlock) throws IOException {
+        Set<String> events = new HashSet<>();
+        if (!listeners.isEmpty()) {
+            events.addAll(CREATED_EVENTS.keySet());
+        }
+        if (RegistryValidation.hasMembershipReads(registryAddress)) {
+            events.addAll(MEMBERSHIP_EVENTS);
+        }
+        if (!events.isEmpty()) {
+            EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(toBlock), registryAddress);
+            filter.addOptionalTopics(events.toArray(new String[0]));
+            for (Log log : getLogs(filter)) {
+                learnLayout(log);
+                if (!listeners.isEmpty()) {
+                    dispatchCreated(log, listeners);
+                }
+                dispatchMembership(log);
+            }
+        }
+        Set<String> keys = followedKeys();
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (Boolean.TRUE.equals(indexed)) {
+            for (Log log : getLogs(proposalFilter(registryAddress, fromBlock, toBlock, keys))) {
+                dispatchProposal(log);
+            }
+            return;
+        }
+        // the keys may be unindexed, which a topic filter would never match
+        for (Log log : getLogs(proposalFilter(registryAddress, fromBlock, toBlock, null))) {
+            learnLayout(log);
+            if (keys.contains(proposalKey(log))) {
+                dispatchProposal(log);
+            }
+        }
+    }
+
+    /**
+     * Notes whether the registry indexes the proposal keys from one of its proposal events.
+     */
+    private void learnLayout(Log log) {
+        if (indexed == null && !log.getTopics().isEmpty()
+                && (OUTCOME_EVENTS.containsKey(log.getTopics().get(0)) || CREATED_EVENTS.containsKey(log.getTopics().get(0)))) {
+            indexed = log.getTopics().size() > 1;
+            if (!indexed) {
+                LOGGER.log(Level.FINE, "The DevOpsRegistry at {0} does not index its proposal keys, following its events unfiltered", registryAddress);
+            }
+        }
+    }
+
+    private Set<String> followedKeys() {
+        Set<String> keys = new HashSet<>(waiters.keySet());
+        keys.addAll(reading.keySet());
+        return keys;
+    }
+
+    private List<Log> getLogs(EthFilter filter) throws IOException {
+        return getLogs(web3j, filter);
+    }
+
+    static List<Log> getLogs(Web3j web3j, EthFilter filter) throws IOException {
+        EthLog ethLog = web3j.ethGetLogs(filter).send();
+        if (ethLog.hasError()) {
+            throw new IOException(ethLog.getError().getMessage());
+        }
+        List<Log> logs = new ArrayList<>(ethLog.getLogs().size());
+        for (EthLog.LogResult<?> logResult : ethLog.getLogs()) {
+            logs.add((Log) logResult.get());
+        }
+        return logs;
+    }
+
+    /**
+     * Builds a filter for the creation, accepted and rejected events of the given proposals only.
+     *
+     * @param registryAddress address of the DevOpsRegistry
+     * @param fromBlock       first block to search
+     * @param toBlock         last block to search
+     * @param keys            proposal keys as returned by {@link #versionKey} and {@link #deploymentKey}, {@code null}
+     *                          for the events of all proposals
+     * @return the filter for {@code eth_getLogs}
+     */
+    static EthFilter proposalFilter(String registryAddress, BigInteger fromBlock, BigInteger toBlock, Collection<String> keys) {
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(toBlock), registryAddress);
+        filter.addOptionalTopics(Stream.concat(OUTCOME_EVENTS.keySet().stream(), CREATED_EVENTS.keySet().stream()).toArray(String[]::new));
+        if (keys != null) {
+            filter.addOptionalTopics(keys.stream().map(RegistryWatcher::topic).toArray(String[]::new));
+        }
+        return filter;
+    }
+
+    /**
+     * @return the key of the proposal the creation or outcome event is about, {@code null} for other logs
+     */
+    static String proposalKey(Log log) {
+        if (log.getTopics().isEmpty()) {
+            return null;
+        }
+        Event event = OUTCOME_EVENTS.get(log.getTopics().get(0));
+        if (event == null) {
+            event = CREATED_EVENTS.get(log.getTopics().get(0));
+        }
+        if (event == null) {
+            return null;
+        }
+        Object value = subject(log, event);
+        return value instanceof byte[] ? versionKey((byte[]) value) : deploymentKey((String) value);
+    }
+
+    private void dispatchCreated(Log log, List<Listener> listeners) {
+        Event event = CREATED_EVENTS.get(log.getTopics().get(0));
+        if (event == null) {
+            return;
+        }
+        Object value = subject(log, event);
+        proposalCreated(event, value);
+        for (Listener listener : listeners) {
+            try {
+                if (event == DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT) {
+                    listener.onVersionProposalCreated(this, (byte[]) value);
+                } else {
+                    listener.onDeploymentProposalCreated(this, (String) value);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Listener failed to handle a new proposal in " + registryAddress, e);
+            }
+        }
+    }
+
+    private void dispatchMembership(Log log) {
+        if (!log.getTopics().isEmpty() && MEMBERSHIP_EVENTS.contains(log.getTopics().get(0))) {
+            RegistryValidation.membersChanged(registryAddress);
+        }
+    }
+
+    private void proposalCreated(Event event, Object value) {
+        if (event == DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT) {
+            versionProposalCreated((byte[]) value);
+        } else {
+            deploymentProposalCreated((String) value);
+        }
+    }
+
+    private void dispatchProposal(Log log) {
+        String topic = log.getTopics().get(0);
+        if (CREATED_EVENTS.containsKey(topic)) {
+            proposalCreated(CREATED_EVENTS.get(topic), subject(log, CREATED_EVENTS.get(topic)));
+            return;
+        }
+        Event event = OUTCOME_EVENTS.get(topic);
+        if (event == null) {
+            return;
+        }
+        String key = proposalKey(log);
+        ProposalOutcome outcome = event == DevOpsRegistry.VERSIONACCEPTED_EVENT || event == DevOpsRegistry.DEPLOYMENTACCEPTED_EVENT
+                ? ProposalOutcome.ACCEPTED : ProposalOutcome.REJECTED;
+        outcomes.putTerminal(key, outcome);
+        Set<CompletableFuture<ProposalOutcome>> waiting = waiters.get(key);
+        if (waiting != null) {
+            for (CompletableFuture<ProposalOutcome> waiter : waiting) {
+                waiter.complete(outcome);
+            }
+        }
+    }
+
+    /**
+     * Receives the proposals created in a registry, in block order.
+     */
+    public interface Listener {
+        void onVersionProposalCreated(RegistryWatcher watcher, byte[] name);
+
+        void onDeploymentProposalCreated(RegistryWatcher watcher, String newDeployment);
+
+        /**
+         * Called after the proposals created up to the block were reported.
+         *
+         * @param toBlock last block the watcher has read
+         */
+        default void onBlocksFollowed(RegistryWatcher watcher, BigInteger toBlock) {
+        }
+    }
+
+    /**
+     * Receives every log of a registry, in block order.
+     */
+    public interface LogListener {
+        /**
+         * @param fromBlock first block that was searched
+         * @param toBlock   last block that was searched
+         * @param logs      the logs of the registry in these blocks
+         */
+        void onLogs(RegistryWatcher watcher, BigInteger fromBlock, BigInteger toBlock, List<Log> logs);
+    }
+
+    /**
+     * @return the proposal key of the event, read from the topics or, for registries deployed before the key was
+     * indexed, from the data
+     */
+    private static Object subject(Log log, Event event) {
+        if (log.getTopics().size() > 1) {
+            return FunctionReturnDecoder.decodeIndexedValue(log.getTopics().get(1), event.getIndexedParameters().get(0)).getValue();
+        }
+        List<TypeReference<Type>> parameters = Utils.convert(List.of(event.getParameters().get(0)));
+        return FunctionReturnDecoder.decode(log.getData(), parameters).get(0).getValue();
+    }
+
+    /**
+     * @return the indexed topic value of a proposal key
+     */
+    static String topic(String key) {
+        if (key.startsWith("version:")) {
+            // bytes20 is left aligned in its word
+            return "0x" + key.substring("version:".length()) + "0".repeat(24);
+        }
+        return "0x" + "0".repeat(24) + key.substring("deployment:".length());
+    }
+
+    static String versionKey(byte[] name) {
+        return "version:" + Hex.encodeHexString(name);
+    }
+
+    static String deploymentKey(String newDeployment) {
+        return "deployment:" + newDeployment.toLowerCase(Locale.ROOT).replaceFirst("^0x", "");
+    }
+}
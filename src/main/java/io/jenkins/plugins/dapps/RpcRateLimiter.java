@@ -0,0 +1,194 @@
+package io.jenkins.plugins.dapps;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller-wide token bucket in front of all JSON-RPC requests to the node.
+ * <p>
+ * Requests are sorted into {@link Lane lanes}. A free token always goes to the waiting request of the most important
+ * lane, so transaction submissions never queue behind status polls. Requests from builds wait for a token
+ * (backpressure). Requests made inside {@link #sheddable} by background work such as the registry watcher or form
+ * validation are rejected with {@link OverloadedException} instead when too many reads are queued or a token does
+ * not become free in time; those callers simply retry later.
+ */
+public final class RpcRateLimiter {
+    /**
+     * Priority classes, most important first.
+     */
+    public enum Lane {
+        SUBMISSION,
+        RECEIPT,
+        READ
+    }
+
+    private static final RpcRateLimiter INSTANCE = new RpcRateLimiter();
+
+    private static final ThreadLocal<Boolean> SHEDDABLE = ThreadLocal.withInitial(() -> false);
+
+    private final int[] waiting = new int[Lane.values().length];
+
+    private double permitsPerSecond;
+    private double burst;
+    private int maxQueuedReads;
+    private long maxReadWaitNanos;
+
+    private double available;
+    private long lastRefill = System.nanoTime();
+
+    RpcRateLimiter() {
+        configure(0, 0, 0, 0);
+    }
+
+    /**
+     * @return the limiter shared by all clients of the controller
+     */
+    public static RpcRateLimiter get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param permitsPerSecond   sustained requests per second, 0 or less disables the limiter
+     * @param burst              requests that may be sent at once after a quiet period
+     * @param maxQueuedReads     sheddable reads that may wait at the same time before further ones are rejected
+     * @param maxReadWaitSeconds longest time a sheddable read waits for a token
+     */
+    public synchronized void configure(double permitsPerSecond, double burst, int maxQueuedReads, long maxReadWaitSeconds) {
+        boolean wasDisabled = this.permitsPerSecond <= 0;
+        if (!wasDisabled) {
+            // tokens earned so far count at the old rate
+            refill();
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.maxQueuedReads = maxQueuedReads;
+        this.maxReadWaitNanos = TimeUnit.SECONDS.toNanos(maxReadWaitSeconds);
+        this.available = wasDisabled ? this.burst : Math.min(available, this.burst);
+        notifyAll();
+    }
+
+    /**
+     * Runs background work whose reads may be rejected when the node is busy.
+     */
+    public static <T> T sheddable(IOCallable<T> callable) throws IOException {
+        boolean previous = SHEDDABLE.get();
+        SHEDDABLE.set(true);
+        try {
+            return callable.call();
+        } finally {
+            SHEDDABLE.set(previous);
+        }
+    }
+
+    /**
+     * @return whether the current thread runs inside {@link #sheddable}
+     */
+    static boolean isSheddable() {
+        return SHEDDABLE.get();
+    }
+
+    /**
+     * @param method JSON-RPC method name
+     * @return the lane requests of that method are queued in
+     */
+    public static Lane laneOf(String method) {
+        if (method == null) {
+            return Lane.READ;
+        }
+        switch (method) {
+            case "eth_sendRawTransaction":
+            case "eth_sendTransaction":
+            case "eth_getTransactionCount":
+                return Lane.SUBMISSION;
+            case "eth_getTransactionReceipt":
+                return Lane.RECEIPT;
+            default:
+                return Lane.READ;
+        }
+    }
+
+    /**
+     * Waits until the request may be sent.
+     *
+     * @throws OverloadedException  if the request is a sheddable read and the limiter is saturated
+     * @throws InterruptedIOException if the waiting thread is interrupted
+     */
+    public synchronized void acquire(Lane lane) throws IOException {
+        if (permitsPerSecond <= 0) {
+            return;
+        }
+        boolean sheddable = lane == Lane.READ && SHEDDABLE.get();
+        if (sheddable && waiting[lane.ordinal()] >= maxQueuedReads) {
+            throw new OverloadedException("Too many queued requests to the Ethereum node");
+        }
+        long deadline = System.nanoTime() + maxReadWaitNanos;
+        waiting[lane.ordinal()]++;
+        try {
+            while (true) {
+                if (permitsPerSecond <= 0) {
+                    // disabled while waiting
+                    return;
+                }
+                refill();
+                if (available >= 1 && !higherLaneWaiting(lane)) {
+                    available -= 1;
+                    return;
+                }
+                long waitNanos = available >= 1 ? TimeUnit.MILLISECONDS.toNanos(10) : (long) ((1 - available) / permitsPerSecond * 1e9);
+                if (sheddable) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new OverloadedException("No capacity for the request to the Ethereum node");
+                    }
+                    waitNanos = Math.min(waitNanos, remaining);
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for capacity on the Ethereum node");
+        } finally {
+            waiting[lane.ordinal()]--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Called when the node answers with HTTP 429, empties the bucket so that all lanes pause for a moment.
+     */
+    public synchronized void throttled() {
+        if (permitsPerSecond > 0) {
+            refill();
+            available = Math.min(available, 0) - burst / 2;
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(burst, available + (now - lastRefill) / 1e9 * permitsPerSecond);
+        lastRefill = now;
+    }
+
+    private boolean higherLaneWaiting(Lane lane) {
+        for (int i = 0; i < lane.ordinal(); i++) {
+            if (waiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * A sheddable request was rejected because the limiter is saturated.
+     */
+    public static class OverloadedException extends IOException {
+        public OverloadedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import jenkins.security.MasterToSlaveCallable;
+import jenkins.util.SystemProperties;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthGetTransactionCount;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.TransactionManager;
+
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a transaction for a build and waits until it is mined, replacing it with a higher gas price while it is stuck.
+ * <p>
+ * The transaction is written to the {@link TransactionJournal} of the build before it is broadcast. When it has not
+ * been mined {@code stallBlocks} blocks after it was first seen, it is signed again with the same nonce and a gas
+ * price raised by {@code bumpPercent} percent, at most {@code maxBumps} times. Whichever version is mined first
+ * finishes the wait. If the journal of the build, or of the previous build that did not get to finish, still holds a
+ * pending transaction with the same call, the build waits for that one instead of sending it again. A broadcast
+ * whose answer is lost stays pending as well, only a transaction the node rejects is dropped.
+ */
+public final class TransactionAccelerator {
+    /**
+     * Blocks a transaction may stay pending before it is replaced.
+     */
+    static final long STALL_BLOCKS = SystemProperties.getLong(TransactionAccelerator.class.getName() + ".stallBlocks", 10L);
+
+    /**
+     * Gas price increase per replacement in percent, nodes reject replacements below 10 percent.
+     */
+    static final long BUMP_PERCENT = SystemProperties.getLong(TransactionAccelerator.class.getName() + ".bumpPercent", 15L);
+
+    /**
+     * Maximum number of replacements per transaction.
+     */
+    static final long MAX_BUMPS = SystemProperties.getLong(TransactionAccelerator.class.getName() + ".maxBumps", 5L);
+
+    /**
+     * Milliseconds between two looks for the receipt.
+     */
+    static final long POLL_INTERVAL = SystemProperties.getLong(TransactionAccelerator.class.getName() + ".pollInterval",
+            TransactionManager.DEFAULT_POLLING_FREQUENCY);
+
+    private TransactionAccelerator() {
+    }
+
+    /**
+     * @param run                the build sending the transaction
+     * @param listener           log of the build
+     * @param web3j              client of the node
+     * @param transactionManager transaction manager of the signing account
+     * @param description        what the transaction does, for the log and the journal
+     * @param to                 address of the contract
+     * @param data               encoded function call
+     * @param gasPrice           initial gas price
+     * @param gasLimit           gas limit
+     * @return the receipt of the mined transaction
+     * @throws IOException if the transaction could not be sent, reverted or its nonce was used by another transaction
+     */
+    public static TransactionReceipt send(Run<?, ?> run, TaskListener listener, Web3j web3j, PipelinedTransactionManager transactionManager,
+                                          String description, String to, String data, BigInteger gasPrice, BigInteger gasLimit)
+            throws IOException, InterruptedException {
+        TransactionJournal.Entry entry = submit(run, listener, transactionManager, description, to, data, gasPrice, gasLimit);
+        return await(run, listener, web3j, transactionManager, entry);
+    }
+
+    /**
+     * Broadcasts the transaction, or finds the pending one with the same call, without waiting for it. Several
+     * transactions submitted one after the other are mined together.
+     *
+     * @return the journal entry to pass to {@link #await}
+     */
+    public static TransactionJournal.Entry submit(Run<?, ?> run, TaskListener listener, PipelinedTransactionManager transactionManager,
+                                                  String description, String to, String data, BigInteger gasPrice, BigInteger gasLimit) throws IOException {
+        String from = transactionManager.getFromAddress();
+        TransactionJournal journal = TransactionJournal.of(run);
+        TransactionJournal.Entry entry = journal.findPending(from, to, data);
+        if (entry == null) {
+            entry = adoptFromPreviousBuild(run, journal, from, to, data);
+        }
+        if (entry != null) {
+            listener.getLogger().println("Waiting for the pending transaction " + lastHash(entry) + " (" + entry.getDescription() + ") instead of sending it again");
+        } else {
+            entry = broadcast(listener, journal, transactionManager, description, to, data, gasPrice, gasLimit);
+            listener.getLogger().println("Sent transaction " + lastHash(entry) + " (" + description + ")");
+        }
+        return entry;
+    }
+
+    /**
+     * Waits until the transaction or one of its replacements is mined, replacing it while it is stuck.
+     *
+     * @param entry the result of {@link #submit}
+     * @return the receipt of the mined transaction
+     */
+    public static TransactionReceipt await(Run<?, ?> run, TaskListener listener, Web3j web3j, PipelinedTransactionManager transactionManager,
+                                           TransactionJournal.Entry entry) throws IOException, InterruptedException {
+        return await(listener, web3j, transactionManager, TransactionJournal.of(run), entry, null);
+    }
+
+    /**
+     * Like {@link #await(Run, TaskListener, Web3j, PipelinedTransactionManager, TransactionJournal.Entry)}, but looks
+     * for the receipt from the agent of the build if {@code agent} is given. Replacements are still signed here.
+     */
+    public static TransactionReceipt await(Run<?, ?> run, TaskListener listener, Web3j web3j, PipelinedTransactionManager transactionManager,
+                                           TransactionJournal.Entry entry, @CheckForNull AgentRpc agent) throws IOException, InterruptedException {
+        return await(listener, web3j, transactionManager, TransactionJournal.of(run), entry, agent);
+    }
+
+    private static TransactionJournal.Entry adoptFromPreviousBuild(Run<?, ?> run, TransactionJournal journal, String from, String to, String data) {
+        Run<?, ?> previous = run.getPreviousBuild();
+        if (previous == null || previous.isBuilding() || previous.getAction(TransactionJournal.class) == null) {
+            return null;
+        }
+        TransactionJournal previousJournal = TransactionJournal.of(previous);
+        TransactionJournal.Entry pending = previousJournal.findPending(from, to, data);
+        if (pending == null) {
+            return null;
+        }
+        TransactionJournal.Entry entry = journal.adopt(pending);
+        previousJournal.finished(pending, TransactionJournal.State.HANDED_OVER, null);
+        return entry;
+    }
+
+    private static TransactionJournal.Entry broadcast(TaskListener listener, TransactionJournal journal, PipelinedTransactionManager transactionManager,
+                                                      String description, String to, String data, BigInteger gasPrice, BigInteger gasLimit) throws IOException {
+        BigInteger nonce = transactionManager.getNonce();
+        RawTransaction transaction = RawTransaction.createTransaction(nonce, gasPrice, gasLimit, to, BigInteger.ZERO, data);
+        String signed = transactionManager.sign(transaction);
+        // journal first, so that a restart between broadcasting and saving cannot lose the transaction
+        TransactionJournal.Entry entry = journal.submitted(description, transactionManager.getFromAddress(), to, data, nonce, gasPrice, gasLimit, Hash.sha3(signed));
+        EthSendTransaction response;
+        try {
+            response = transactionManager.sendRaw(signed);
+        } catch (IOException e) {
+            // the node may have got it before the connection broke, the receipt poll finds it or replaces it once it stalls
+            listener.getLogger().println("Could not confirm the broadcast of transaction " + lastHash(entry) + " (" + description + "): " + e.getMessage());
+            return entry;
+        }
+        if (response.hasError()) {
+            // rejected by the node, the nonce is still free
+            transactionManager.resetNonce();
+            journal.finished(entry, TransactionJournal.State.DROPPED, null);
+            throw new IOException("Error processing transaction request: " + response.getError().getMessage());
+        }
+        return entry;
+    }
+
+    private static TransactionReceipt await(TaskListener listener, Web3j web3j, PipelinedTransactionManager transactionManager,
+                                            TransactionJournal journal, TransactionJournal.Entry entry, AgentRpc agent)
+            throws IOException, InterruptedException {
+        while (true) {
+            boolean bumpable = entry.getFrom().equalsIgnoreCase(transactionManager.getFromAddress())
+                    && entry.getTransactionHashes().size() <= MAX_BUMPS;
+            ReceiptPoll poll = new ReceiptPoll(agent != null ? agent.getNodeUrl() : null, entry, bumpable);
+            ReceiptPoll.Result result = agent != null ? agent.call(poll) : poll.poll(web3j);
+            switch (result.kind) {
+                case SEEN:
+                    // saved right away, so that a restart does not count the stalled blocks from zero again
+                    journal.seenAt(entry, result.head);
+                    break;
+                case MINED:
+                    Optional<TransactionReceipt> receipt = receipt(web3j, result.transactionHash);
+                    if (receipt.isEmpty()) {
+                        // the agent saw it first, look again after a while
+                        TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL);
+                        break;
+                    }
+                    if (!receipt.get().isStatusOK()) {
+                        journal.finished(entry, TransactionJournal.State.REVERTED, result.transactionHash);
+                        throw new IOException("Transaction " + result.transactionHash + " (" + entry.getDescription() + ") was reverted");
+                    }
+                    journal.finished(entry, TransactionJournal.State.MINED, result.transactionHash);
+                    return receipt.get();
+                case NONCE_USED:
+                    journal.finished(entry, TransactionJournal.State.DROPPED, null);
+                    throw new IOException("The nonce of transaction " + lastHash(entry) + " (" + entry.getDescription() + ") was used by another transaction");
+                case STALLED:
+                    bump(listener, web3j, transactionManager, journal, entry, result.head);
+                    break;
+            }
+        }
+    }
+
+    private static void bump(TaskListener listener, Web3j web3j, PipelinedTransactionManager transactionManager,
+                             TransactionJournal journal, TransactionJournal.Entry entry, BigInteger head) throws IOException {
+        if (!entry.getFrom().equalsIgnoreCase(transactionManager.getFromAddress())) {
+            return;
+        }
+        BigInteger gasPrice = entry.getGasPrice().multiply(BigInteger.valueOf(100 + BUMP_PERCENT)).divide(BigInteger.valueOf(100));
+        BigInteger networkGasPrice = web3j.ethGasPrice().send().getGasPrice();
+        if (networkGasPrice != null) {
+            gasPrice = gasPrice.max(networkGasPrice);
+        }
+        RawTransaction replacement = RawTransaction.createTransaction(entry.getNonce(), gasPrice, entry.getGasLimit(), entry.getTo(), BigInteger.ZERO, entry.getData());
+        String signed = transactionManager.sign(replacement);
+        String transactionHash = Hash.sha3(signed);
+        journal.replaced(entry, transactionHash, gasPrice, head);
+        EthSendTransaction response = transactionManager.sendRaw(signed);
+        if (response.hasError()) {
+            // e.g. the original was mined meanwhile, the next look for the receipts tells
+            listener.getLogger().println("Could not replace the stalled transaction: " + response.getError().getMessage());
+            return;
+        }
+        listener.getLogger().println("Transaction was not mined within " + STALL_BLOCKS + " blocks, replaced it with "
+                + transactionHash + " at a gas price of " + gasPrice + " wei");
+    }
+
+    private static Optional<TransactionReceipt> receipt(Web3j web3j, String transactionHash) throws IOException {
+        EthGetTransactionReceipt response = web3j.ethGetTransactionReceipt(transactionHash).send();
+        if (response.hasError()) {
+            throw new IOException("Could not read the receipt of " + transactionHash + ": " + response.getError().getMessage());
+        }
+        return response.getTransactionReceipt();
+    }
+
+    private static BigInteger confirmedNonce(Web3j web3j, String address) throws IOException {
+        EthGetTransactionCount transactionCount = web3j.ethGetTransactionCount(address, DefaultBlockParameterName.LATEST).send();
+        if (transactionCount.hasError()) {
+            throw new IOException("Could not read the nonce: " + transactionCount.getError().getMessage());
+        }
+        return transactionCount.getTransactionCount();
+    }
+
+    private static String lastHash(TransactionJournal.Entry entry) {
+        return entry.getTransactionHashes().get(entry.getTransactionHashes().size() - 1);
+    }
+
+    /**
+     * Looks for the receipt of a pending transaction until it is mined, its nonce was used by another transaction, it
+     * is first seen pending, or it has to be replaced. Runs on the controller or, through {@link AgentRpc}, on the agent of the build.
+     */
+    static final class ReceiptPoll extends MasterToSlaveCallable<ReceiptPoll.Result, IOException> {
+        private static final long serialVersionUID = 1L;
+
+        private final String nodeUrl;
+        private final List<String> transactionHashes;
+        private final String from;
+        private final BigInteger nonce;
+        private final BigInteger sentBlock;
+        private final boolean bumpable;
+        private final long stallBlocks = STALL_BLOCKS;
+        private final long pollInterval = POLL_INTERVAL;
+
+        /**
+         * @param nodeUrl  URL of the node, only needed on the agent
+         * @param bumpable whether the poll returns when the transaction stalls
+         */
+        ReceiptPoll(String nodeUrl, TransactionJournal.Entry entry, boolean bumpable) {
+            this.nodeUrl = nodeUrl;
+            this.transactionHashes = new ArrayList<>(entry.getTransactionHashes());
+            this.from = entry.getFrom();
+            this.nonce = entry.getNonce();
+            this.sentBlock = entry.getSentBlock();
+            this.bumpable = bumpable;
+        }
+
+        @Override
+        public Result call() throws IOException {
+            try {
+                return poll(Web3jClients.get(nodeUrl));
+            } catch (InterruptedException e) {
+                throw (InterruptedIOException) new InterruptedIOException("Interrupted while waiting for the receipt").initCause(e);
+            }
+        }
+
+        Result poll(Web3j web3j) throws IOException, InterruptedException {
+            boolean nonceUsed = false;
+            while (true) {
+                for (String transactionHash : transactionHashes) {
+                    if (receipt(web3j, transactionHash).isPresent()) {
+                        return new Result(Result.Kind.MINED, transactionHash, null);
+                    }
+                }
+
+                if (confirmedNonce(web3j, from).compareTo(nonce) > 0) {
+                    // the receipt may not have been visible yet, look once more before giving up
+                    if (nonceUsed) {
+                        return new Result(Result.Kind.NONCE_USED, null, null);
+                    }
+                    nonceUsed = true;
+                } else {
+                    BigInteger head = web3j.ethBlockNumber().send().getBlockNumber();
+                    if (sentBlock == null) {
+                        return new Result(Result.Kind.SEEN, null, head);
+                    }
+                    if (bumpable && head.subtract(sentBlock).compareTo(BigInteger.valueOf(stallBlocks)) >= 0) {
+                        return new Result(Result.Kind.STALLED, null, head);
+                    }
+                }
+                TimeUnit.MILLISECONDS.sleep(pollInterval);
+            }
+        }
+
+        static final class Result implements Serializable {
+            private static final long serialVersionUID = 1L;
+
+            enum Kind {
+                MINED,
+                NONCE_USED,
+                /**
+                 * Pending without a known block, {@code head} is the block it was first seen at.
+                 */
+                SEEN,
+                STALLED
+            }
+
+            final Kind kind;
+            final String transactionHash;
+            final BigInteger head;
+
+            Result(Kind kind, String transactionHash, BigInteger head) {
+                this.kind = kind;
+                this.transactionHash = transactionHash;
+                this.head = head;
+            }
+        }
+    }
+}
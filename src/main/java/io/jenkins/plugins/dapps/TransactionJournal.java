@@ -0,0 +1,222 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Record of the transactions a build submitted to the DevOpsRegistry, saved with the build.
+ * <p>
+ * Every transaction is written to the journal before it is broadcast, together with each fee-bumped replacement.
+ * A build that runs the same step again, or the next build after one that was cut off by a controller restart,
+ * finds the transaction here and waits for it instead of sending a new one.
+ */
+public class TransactionJournal extends InvisibleAction {
+    private static final Logger LOGGER = Logger.getLogger(TransactionJournal.class.getName());
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private transient Run<?, ?> run;
+
+    /**
+     * @return the journal of the build, added to it if there is none yet
+     */
+    public static synchronized TransactionJournal of(Run<?, ?> run) {
+        TransactionJournal journal = run.getAction(TransactionJournal.class);
+        if (journal == null) {
+            journal = new TransactionJournal();
+            run.addAction(journal);
+        }
+        journal.run = run;
+        return journal;
+    }
+
+    /**
+     * @param from address of the sending account
+     * @param to   address of the called contract
+     * @param data encoded function call
+     * @return the transaction with this call that was submitted and has not been mined yet, or {@code null}
+     */
+    public synchronized Entry findPending(String from, String to, String data) {
+        for (Entry entry : entries) {
+            if (entry.isPending() && entry.from.equalsIgnoreCase(from) && entry.to.equalsIgnoreCase(to) && entry.data.equals(data)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return copies of all entries
+     */
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * Records a transaction before it is broadcast.
+     */
+    public synchronized Entry submitted(String description, String from, String to, String data, BigInteger nonce,
+                                        BigInteger gasPrice, BigInteger gasLimit, String transactionHash) {
+        Entry entry = new Entry(description, from, to, data, nonce, gasPrice, gasLimit, transactionHash);
+        entries.add(entry);
+        save();
+        return entry;
+    }
+
+    /**
+     * Takes over a pending transaction from the journal of another build.
+     */
+    public synchronized Entry adopt(Entry pending) {
+        Entry entry = pending.copy();
+        entries.add(entry);
+        save();
+        return entry;
+    }
+
+    /**
+     * Records a fee-bumped replacement with the same nonce.
+     */
+    public synchronized void replaced(Entry entry, String transactionHash, BigInteger gasPrice, BigInteger block) {
+        entry.transactionHashes.add(transactionHash);
+        entry.gasPrice = gasPrice;
+        entry.sentBlock = block;
+        save();
+    }
+
+    /**
+     * Records the block a transaction was first seen pending at.
+     */
+    public synchronized void seenAt(Entry entry, BigInteger block) {
+        entry.sentBlock = block;
+        save();
+    }
+
+    /**
+     * Records how the transaction ended.
+     *
+     * @param transactionHash the hash that was mined, {@code null} if none of them was
+     */
+    public synchronized void finished(Entry entry, State state, String transactionHash) {
+        entry.state = state;
+        entry.minedTransactionHash = transactionHash;
+        save();
+    }
+
+    private void save() {
+        if (run == null) {
+            return;
+        }
+        try {
+            run.save();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not save the transaction journal of " + run, e);
+        }
+    }
+
+    public enum State {
+        PENDING,
+        MINED,
+        REVERTED,
+        DROPPED,
+        /**
+         * A later build waits for the transaction.
+         */
+        HANDED_OVER
+    }
+
+    /**
+     * A transaction and all of its replacements.
+     */
+    public static final class Entry {
+        private final String description;
+        private final String from;
+        private final String to;
+        private final String data;
+        private final BigInteger nonce;
+        private final BigInteger gasLimit;
+        private final List<String> transactionHashes = new ArrayList<>();
+        private BigInteger gasPrice;
+        private BigInteger sentBlock;
+        private State state = State.PENDING;
+        private String minedTransactionHash;
+
+        Entry(String description, String from, String to, String data, BigInteger nonce, BigInteger gasPrice, BigInteger gasLimit, String transactionHash) {
+            this.description = description;
+            this.from = from;
+            this.to = to;
+            this.data = data;
+            this.nonce = nonce;
+            this.gasPrice = gasPrice;
+            this.gasLimit = gasLimit;
+            this.transactionHashes.add(transactionHash);
+        }
+
+        private Entry copy() {
+            Entry copy = new Entry(description, from, to, data, nonce, gasPrice, gasLimit, transactionHashes.get(0));
+            copy.transactionHashes.addAll(transactionHashes.subList(1, transactionHashes.size()));
+            copy.sentBlock = sentBlock;
+            return copy;
+        }
+
+        public boolean isPending() {
+            return state == State.PENDING;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        public BigInteger getNonce() {
+            return nonce;
+        }
+
+        public BigInteger getGasLimit() {
+            return gasLimit;
+        }
+
+        public BigInteger getGasPrice() {
+            return gasPrice;
+        }
+
+        /**
+         * @return the hashes of the transaction and its replacements, oldest first
+         */
+        public List<String> getTransactionHashes() {
+            return new ArrayList<>(transactionHashes);
+        }
+
+        /**
+         * @return the block the latest replacement was first seen pending at, {@code null} if not known yet
+         */
+        public BigInteger getSentBlock() {
+            return sentBlock;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public String getMinedTransactionHash() {
+            return minedTransactionHash;
+        }
+    }
+}
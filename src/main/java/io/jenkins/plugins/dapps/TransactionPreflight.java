@@ -0,0 +1,104 @@
+package io.jenkins.plugins.dapps;
+
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.Utils;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Simulates DevOpsRegistry transactions with {@code eth_call} before they are sent, so that calls which would revert
+ * fail with the revert reason of the contract instead of after paying gas and waiting for the block.
+ */
+public final class TransactionPreflight {
+    static final String ERROR_SELECTOR = "0x08c379a0";
+
+    static final String VERSION_PROPOSAL_EXISTS = "VersionProposal already exists";
+    static final String DEPLOYMENT_PROPOSAL_EXISTS = "DeploymentProposal already exists";
+    static final String VERSION_PROPOSAL_VOTED = "You have already voted on this VersionProposal";
+    static final String DEPLOYMENT_PROPOSAL_VOTED = "You have already voted on this DeploymentProposal";
+    static final String VERSION_PROPOSAL_MISSING = "This VersionProposal has not been initialized";
+    static final String DEPLOYMENT_PROPOSAL_MISSING = "This DeploymentProposal has not been initialized";
+
+    private static final List<TypeReference<Type>> ERROR_PARAMETERS = Utils.convert(List.of(new TypeReference<Utf8String>() {
+    }));
+
+    private TransactionPreflight() {
+    }
+
+    /**
+     * Executes the call against the latest block without sending a transaction.
+     *
+     * @param web3j web3j client
+     * @param from  address the transaction would be sent from
+     * @param to    address of the DevOpsRegistry
+     * @param data  encoded function call
+     * @return the revert reason, or {@code null} if the transaction would succeed
+     */
+    public static String simulate(Web3j web3j, String from, String to, String data) throws IOException {
+        EthCall ethCall = web3j.ethCall(Transaction.createEthCallTransaction(from, to, data), DefaultBlockParameterName.LATEST).send();
+        if (ethCall.hasError()) {
+            String reason = decodeRevertReason(ethCall.getError().getData());
+            return reason != null ? reason : ethCall.getError().getMessage();
+        }
+        return decodeRevertReason(ethCall.getValue());
+    }
+
+    /**
+     * @param data return data of a call
+     * @return the message of an {@code Error(string)} revert, or {@code null} if the data is no such revert
+     */
+    static String decodeRevertReason(String data) {
+        if (data == null) {
+            return null;
+        }
+        String hex = data.replace("\"", "");
+        if (!hex.startsWith(ERROR_SELECTOR)) {
+            return null;
+        }
+        List<Type> values = FunctionReturnDecoder.decode(hex.substring(ERROR_SELECTOR.length()), ERROR_PARAMETERS);
+        return values.isEmpty() ? null : (String) values.get(0).getValue();
+    }
+
+    /**
+     * @return the outcome of the VersionProposal, or {@code null} if it does not exist or is still undecided
+     */
+    public static ProposalOutcome versionOutcome(Web3j web3j, String registryAddress, byte[] name) throws IOException {
+        Boolean accepted = DevOpsRegistryCodec.callBool(web3j, registryAddress, DevOpsRegistryCodec.encodeVersionProposalAccepted(name));
+        if (accepted == null) {
+            // reverts while the proposal has not been initialized
+            return null;
+        }
+        if (accepted) {
+            return ProposalOutcome.ACCEPTED;
+        }
+        if (Boolean.TRUE.equals(DevOpsRegistryCodec.callBool(web3j, registryAddress, DevOpsRegistryCodec.encodeVersionProposalRejected(name)))) {
+            return ProposalOutcome.REJECTED;
+        }
+        return null;
+    }
+
+    /**
+     * @return the outcome of the DeploymentProposal, or {@code null} if it does not exist or is still undecided
+     */
+    public static ProposalOutcome deploymentOutcome(Web3j web3j, String registryAddress, String newDeployment) throws IOException {
+        Boolean accepted = DevOpsRegistryCodec.callBool(web3j, registryAddress, DevOpsRegistryCodec.encodeDeploymentProposalAccepted(newDeployment));
+        if (accepted == null) {
+            return null;
+        }
+        if (accepted) {
+            return ProposalOutcome.ACCEPTED;
+        }
+        if (Boolean.TRUE.equals(DevOpsRegistryCodec.callBool(web3j, registryAddress, DevOpsRegistryCodec.encodeDeploymentProposalRejected(newDeployment)))) {
+            return ProposalOutcome.REJECTED;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,25 @@
+package io.jenkins.plugins.dapps;
+
+import org.web3j.protocol.Web3j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one {@link Web3j} client per node URL between builds and the registry watchers,
+ * so that concurrent builds reuse the same HTTP connection pool. All clients share the {@link RpcRateLimiter}.
+ */
+public final class Web3jClients {
+    private static final Map<String, Web3j> CLIENTS = new ConcurrentHashMap<>();
+
+    private Web3jClients() {
+    }
+
+    /**
+     * @param nodeUrl URL of the Ethereum node
+     * @return the shared client for that node
+     */
+    public static Web3j get(String nodeUrl) {
+        return CLIENTS.computeIfAbsent(nodeUrl, url -> Web3j.build(new RateLimitedHttpService(url, RpcRateLimiter.get())));
+    }
+}
@@ -0,0 +1,286 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Saveable;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers the webhook calls of the {@link DappMainBuilder} at least once, also when a voter controller is down or
+ * slow at that moment.
+ * <p>
+ * Calls are written to {@code io.jenkins.plugins.dapps.WebhookOutbox.xml} in {@code JENKINS_HOME} before the build
+ * continues and delivered on the {@link EthOpsExecutor}. A failed call is repeated after {@code initialBackoff}
+ * seconds, doubling up to {@code maxBackoff}, for {@code maxAgeHours} hours; pending calls survive a restart. Before
+ * a repetition the proposals are looked up on-chain, and once all are decided the call is dropped. Every call carries
+ * its key in the {@code X-EthOps-Delivery} header so that receivers can ignore repetitions, and a call with the same
+ * key as a pending one is not queued again. The key covers the URL and the build making the call, so the calls of a
+ * later build proposing the same commit again are not taken for repetitions.
+ */
+@Extension
+public class WebhookOutbox implements Saveable {
+    private static final Logger LOGGER = Logger.getLogger(WebhookOutbox.class.getName());
+
+    static final long INITIAL_BACKOFF = SystemProperties.getLong(WebhookOutbox.class.getName() + ".initialBackoff", 10L);
+
+    static final long MAX_BACKOFF = SystemProperties.getLong(WebhookOutbox.class.getName() + ".maxBackoff", 600L);
+
+    static final long MAX_AGE_HOURS = SystemProperties.getLong(WebhookOutbox.class.getName() + ".maxAgeHours", 24L);
+
+    static final int TIMEOUT_MILLIS = SystemProperties.getInteger(WebhookOutbox.class.getName() + ".timeoutMillis", 30000);
+
+    private List<Delivery> deliveries = new ArrayList<>();
+
+    /**
+     * @return the singleton instance
+     */
+    public static WebhookOutbox get() {
+        return ExtensionList.lookupSingleton(WebhookOutbox.class);
+    }
+
+    public WebhookOutbox() {
+        load();
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void resume() {
+        WebhookOutbox outbox = get();
+        for (Delivery delivery : outbox.pending()) {
+            outbox.schedule(delivery);
+        }
+    }
+
+    /**
+     * Queues a webhook call and returns without waiting for it.
+     *
+     * @param url             webhook target with the query string
+     * @param origin          the build making the call, see {@link hudson.model.Run#getExternalizableId()}
+     * @param registryAddress address of the DevOpsRegistry holding the proposals
+     * @param type            {@code version} or {@code deployment}
+     * @param subjects        proposed git commit hashes or contract addresses
+     * @return {@code false} if the same call is already pending
+     */
+    public boolean enqueue(String url, String origin, String registryAddress, String type, List<String> subjects) throws IOException {
+        Delivery delivery = new Delivery(key(url, origin), url, registryAddress, type, subjects);
+        if (!add(delivery)) {
+            return false;
+        }
+        EthOpsExecutor.get().execute(() -> deliver(delivery));
+        return true;
+    }
+
+    /**
+     * Queues a webhook call whose first attempt failed elsewhere, e.g. on the agent of the build, for the next attempt
+     * after the backoff.
+     *
+     * @param reason why the first attempt failed
+     * @return {@code false} if the same call is already pending
+     */
+    public boolean enqueueFailed(String url, String origin, String registryAddress, String type, List<String> subjects, String reason) throws IOException {
+        Delivery delivery = new Delivery(key(url, origin), url, registryAddress, type, subjects);
+        if (!add(delivery)) {
+            return false;
+        }
+        retry(delivery, reason);
+        return true;
+    }
+
+    /**
+     * @param origin the build making the call
+     * @return the value of the {@code X-EthOps-Delivery} header for the call
+     */
+    static String key(String url, String origin) {
+        return DigestUtils.sha256Hex(origin + "\n" + url);
+    }
+
+    /**
+     * @return whether a call that was answered with the status is tried again
+     */
+    static boolean isRetryable(int status) {
+        return status == 408 || status == 429 || status >= 500;
+    }
+
+    private synchronized boolean add(Delivery delivery) throws IOException {
+        for (Delivery pending : deliveries) {
+            if (pending.key.equals(delivery.key)) {
+                return false;
+            }
+        }
+        deliveries.add(delivery);
+        save();
+        return true;
+    }
+
+    synchronized List<Delivery> pending() {
+        return new ArrayList<>(deliveries);
+    }
+
+    private void schedule(Delivery delivery) {
+        long delay = Math.max(0, delivery.nextAttempt - System.currentTimeMillis());
+        Timer.get().schedule(() -> EthOpsExecutor.get().execute(() -> deliver(delivery)), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliver(Delivery delivery) {
+        try {
+            if (delivery.attempts > 0 && decided(delivery)) {
+                LOGGER.log(Level.FINE, "Dropping the webhook call {0}, its proposals are decided", delivery.key);
+                remove(delivery);
+                return;
+            }
+            int status = call(delivery.url, delivery.key, TIMEOUT_MILLIS);
+            if (status < 400) {
+                remove(delivery);
+                return;
+            }
+            if (!isRetryable(status)) {
+                LOGGER.log(Level.WARNING, "Webhook {0} answered {1}, not calling it again", new Object[]{delivery.url, status});
+                remove(delivery);
+                return;
+            }
+            retry(delivery, "HTTP " + status);
+        } catch (IOException | RuntimeException e) {
+            retry(delivery, e.toString());
+        }
+    }
+
+    /**
+     * Calls the webhook once, also on an agent.
+     *
+     * @return the HTTP status of the answer
+     */
+    static int call(String url, String key, int timeoutMillis) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            urlConnection.setRequestMethod("GET");
+            urlConnection.setConnectTimeout(timeoutMillis);
+            urlConnection.setReadTimeout(timeoutMillis);
+            urlConnection.setRequestProperty("X-EthOps-Delivery", key);
+            urlConnection.connect();
+            return urlConnection.getResponseCode();
+        } finally {
+            urlConnection.disconnect();
+        }
+    }
+
+    private boolean decided(Delivery delivery) throws IOException {
+        RegistryWatcher watcher = RegistryWatcher.forRegistry(NodeConfiguration.get().getNodeUrl(), delivery.registryAddress);
+        for (String subject : delivery.subjects) {
+            ProposalOutcome outcome;
+            if (delivery.type.equals("version")) {
+                try {
+                    outcome = watcher.versionOutcome(Hex.decodeHex(subject));
+                } catch (org.apache.commons.codec.DecoderException e) {
+                    throw new IOException(e);
+                }
+            } else {
+                outcome = watcher.deploymentOutcome(subject);
+            }
+            if (outcome == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void retry(Delivery delivery, String reason) {
+        long now = System.currentTimeMillis();
+        if (now - delivery.created > TimeUnit.HOURS.toMillis(MAX_AGE_HOURS)) {
+            LOGGER.log(Level.WARNING, "Giving up on webhook {0} after {1} attempts: {2}", new Object[]{delivery.url, delivery.attempts + 1, reason});
+            remove(delivery);
+            return;
+        }
+        long backoff = Math.min(MAX_BACKOFF, INITIAL_BACKOFF << Math.min(delivery.attempts, 20));
+        synchronized (this) {
+            delivery.attempts++;
+            delivery.nextAttempt = now + TimeUnit.SECONDS.toMillis(backoff);
+            saveQuietly();
+        }
+        LOGGER.log(Level.INFO, "Webhook {0} failed ({1}), calling it again in {2} seconds", new Object[]{delivery.url, reason, backoff});
+        schedule(delivery);
+    }
+
+    private synchronized void remove(Delivery delivery) {
+        deliveries.remove(delivery);
+        saveQuietly();
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not save the webhook outbox", e);
+        }
+    }
+
+    private XmlFile getConfigFile() {
+        return new XmlFile(new File(Jenkins.get().getRootDir(), WebhookOutbox.class.getName() + ".xml"));
+    }
+
+    private synchronized void load() {
+        XmlFile file = getConfigFile();
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            file.unmarshal(this);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not load the webhook outbox from " + file, e);
+        }
+        if (deliveries == null) {
+            deliveries = new ArrayList<>();
+        }
+    }
+
+    @Override
+    public synchronized void save() throws IOException {
+        getConfigFile().write(this);
+    }
+
+    /**
+     * A pending webhook call.
+     */
+    static final class Delivery {
+        private final String key;
+        private final String url;
+        private final String registryAddress;
+        private final String type;
+        private final List<String> subjects;
+        private final long created;
+        private int attempts;
+        private long nextAttempt;
+
+        Delivery(String key, String url, String registryAddress, String type, List<String> subjects) {
+            this.key = key;
+            this.url = url;
+            this.registryAddress = registryAddress;
+            this.type = type;
+            this.subjects = new ArrayList<>(subjects);
+            this.created = System.currentTimeMillis();
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getUrl() {
+            return url;
+        }
+    }
+}
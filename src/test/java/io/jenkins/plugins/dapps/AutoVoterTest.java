@@ -0,0 +1,80 @@
+package io.jenkins.plugins.dapps;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.model.FreeStyleProject;
+import hudson.slaves.EnvironmentVariablesNodeProperty;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.MockAuthorizationStrategy;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static io.jenkins.plugins.dapps.DappMainBuilderTest.ethCall;
+import static io.jenkins.plugins.dapps.DappMainBuilderTest.revert;
+import static org.junit.Assert.assertEquals;
+
+public class AutoVoterTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    // second account of the Hardhat network
+    private static final String PRIVATE_KEY = "59c6995e998f97a5a0044966f0945389dc9e86dae88c7a8412f4603b6b78690d";
+    private static final String FROM = "0x70997970c51812dc3a010c7d01b50e0d17dc79c8";
+    private static final byte[] COMMIT = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+    private static final String RECEIPT = "{\"transactionHash\": \"0x" + "ab".repeat(32) + "\", \"blockNumber\": \"0x11\", \"status\": \"0x1\", \"logs\": []}";
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+
+    @After
+    public void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void votesForTheCommitOfASuccessfulBuildOfAJobOnlyAdministratorsCanSee() throws Exception {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        Files.write(recording, List.of(
+                "{\"method\": \"eth_chainId\", \"result\": \"0x7a69\"}",
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}",
+                "{\"method\": \"eth_getLogs\", \"result\": []}",
+                ethCall(null, DevOpsRegistryCodec.encodeVersionProposalAccepted(COMMIT), revert(TransactionPreflight.VERSION_PROPOSAL_MISSING)),
+                ethCall(FROM, DevOpsRegistryCodec.encodeVoteVersionProposal(COMMIT, true), "\"result\": \"0x\""),
+                "{\"method\": \"eth_getTransactionCount\", \"result\": \"0x0\"}",
+                "{\"method\": \"eth_sendRawTransaction\", \"result\": \"0x" + "ab".repeat(32) + "\"}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT + "}"
+        ), StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        SystemCredentialsProvider.getInstance().getCredentials().add(new EthereumPrivateKeyImpl(CredentialsScope.GLOBAL, "key", PRIVATE_KEY, null));
+        NodeConfiguration.get().setNodeUrl(node.getUrl());
+        // anonymous, as which the votes run without the system authentication, cannot see the job
+        j.jenkins.setAuthorizationStrategy(new MockAuthorizationStrategy());
+        j.jenkins.getGlobalNodeProperties().add(new EnvironmentVariablesNodeProperty(
+                new EnvironmentVariablesNodeProperty.Entry("GIT_COMMIT", Hex.encodeHexString(COMMIT))));
+        FreeStyleProject tests = j.createFreeStyleProject("tests");
+        j.buildAndAssertSuccess(tests);
+
+        AutoVoter autoVoter = AutoVoter.get();
+        autoVoter.setRules(List.of(new AutoVoteRule(REGISTRY, "key", "versionProposal", "tests")));
+        autoVoter.onVersionProposalCreated(RegistryWatcher.forRegistry(node.getUrl(), REGISTRY), COMMIT);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (node.getCalls("eth_sendRawTransaction") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+    }
+}
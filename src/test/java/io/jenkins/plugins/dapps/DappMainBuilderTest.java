@@ -0,0 +1,275 @@
+package io.jenkins.plugins.dapps;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.sun.net.httpserver.HttpServer;
+import de.tu_berlin.sbe.DevOpsRegistry;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.slaves.EnvironmentVariablesNodeProperty;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
+import org.web3j.crypto.RawTransaction;
+import org.web3j.crypto.TransactionEncoder;
+import org.web3j.protocol.ObjectMapperFactory;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.tx.gas.DefaultGasProvider;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DappMainBuilderTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    // first account of the Hardhat network
+    private static final String PRIVATE_KEY = "ac0974bec39a17e36ba4a6b4d238ff944bacb478cbed5efcae784d7bf4f2ff80";
+    private static final String FROM = "0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266";
+    private static final byte[] COMMIT = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+    private static final String RECEIPT = "{\"transactionHash\": \"0x" + "ab".repeat(32) + "\", \"blockNumber\": \"0x11\", \"status\": \"0x1\", \"logs\": []}";
+
+    static {
+        // the receipt is looked for every 10 instead of 15000 milliseconds
+        System.setProperty(TransactionAccelerator.class.getName() + ".pollInterval", "10");
+    }
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+
+    @After
+    public void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void proposesAVersionWithOneCallPerStep() throws Exception {
+        node = JsonRpcReplayNode.replay(versionProposal()).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        assertSingleTransaction(build);
+        assertEquals(1, node.getCalls("eth_chainId"));
+        // the outcome before proposing, the simulation, and the outcome once the waiter is registered
+        assertEquals(3, node.getCalls("eth_call"));
+        assertEquals(1, node.getCalls("eth_getTransactionCount"));
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+        // the receipt poll and the receipt itself
+        assertEquals(2, node.getCalls("eth_getTransactionReceipt"));
+        assertEquals(0, node.getCalls("eth_getLogs"));
+    }
+
+    @Test
+    public void repeatsThrottledRequestsWithoutSendingTwice() throws Exception {
+        node = JsonRpcReplayNode.replay(versionProposal()).throttleRate(0.2).seed(4).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        assertSingleTransaction(build);
+        // the node answered 429 before reading the transaction, so every retry broadcast the same one
+        assertTrue(node.getCalls("eth_sendRawTransaction") >= 1);
+    }
+
+    @Test
+    public void makesNoExtraCallsOnASlowNode() throws Exception {
+        node = JsonRpcReplayNode.replay(versionProposal()).latency(200).jitter(100).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        assertSingleTransaction(build);
+        assertEquals(3, node.getCalls("eth_call"));
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+        assertEquals(2, node.getCalls("eth_getTransactionReceipt"));
+    }
+
+    @Test
+    public void succeedsOnceTheRequiredDeploymentIsAccepted() throws Exception {
+        String first = "0x" + "11".repeat(20);
+        String second = "0x" + "22".repeat(20);
+        String yes = "\"result\": \"0x" + "0".repeat(63) + "1\"";
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        List<String> lines = new ArrayList<>();
+        lines.add("{\"method\": \"eth_chainId\", \"result\": \"0x7a69\"}");
+        lines.add("{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}");
+        // both undecided before proposing, only the first one is accepted
+        lines.add(ethCall(null, DevOpsRegistryCodec.encodeDeploymentProposalAccepted(first), revert(TransactionPreflight.DEPLOYMENT_PROPOSAL_MISSING)));
+        lines.add(ethCall(null, DevOpsRegistryCodec.encodeDeploymentProposalAccepted(first), yes));
+        lines.add(ethCall(null, DevOpsRegistryCodec.encodeDeploymentProposalAccepted(second), revert(TransactionPreflight.DEPLOYMENT_PROPOSAL_MISSING)));
+        lines.add(ethCall(FROM, DevOpsRegistryCodec.encodeCreateDeploymentProposal(first), "\"result\": \"0x\""));
+        lines.add(ethCall(FROM, DevOpsRegistryCodec.encodeCreateDeploymentProposal(second), "\"result\": \"0x\""));
+        lines.add("{\"method\": \"eth_getTransactionCount\", \"result\": \"0x0\"}");
+        lines.add("{\"method\": \"eth_sendRawTransaction\", \"result\": \"0x" + "ab".repeat(32) + "\"}");
+        lines.add("{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT + "}");
+        lines.add("{\"method\": \"eth_getLogs\", \"result\": []}");
+        Files.write(recording, lines, StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        SystemCredentialsProvider.getInstance().getCredentials().add(new EthereumPrivateKeyImpl(CredentialsScope.GLOBAL, "key", PRIVATE_KEY, null));
+        NodeConfiguration.get().setNodeUrl(node.getUrl());
+        j.jenkins.getGlobalNodeProperties().add(new EnvironmentVariablesNodeProperty(
+                new EnvironmentVariablesNodeProperty.Entry("GIT_COMMIT", Hex.encodeHexString(COMMIT)),
+                new EnvironmentVariablesNodeProperty.Entry("CONTRACT_ADDRESS", first + ", " + second)));
+        FreeStyleProject project = j.createFreeStyleProject();
+        DappMainBuilder builder = new DappMainBuilder("key", "deploymentProposal", "fromAddress", null, 0, 0, REGISTRY,
+                j.getURL() + "ethops-webhook");
+        builder.setAwaitDeployments(true);
+        builder.setRequiredDeployments(1);
+        project.getBuildersList().add(builder);
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+
+        List<TransactionJournal.Entry> entries = TransactionJournal.of(build).getEntries();
+        assertEquals(2, entries.size());
+        for (TransactionJournal.Entry entry : entries) {
+            assertEquals("createDeploymentProposal", entry.getDescription());
+            assertEquals(TransactionJournal.State.MINED, entry.getState());
+        }
+        // both proposals are sent before waiting for either
+        assertEquals(1, node.getCalls("eth_getTransactionCount"));
+        assertEquals(2, node.getCalls("eth_sendRawTransaction"));
+        j.assertLogContains("Waiting for 1 of 2 DeploymentProposals to be accepted", build);
+        j.assertLogContains("DeploymentProposal for " + first + " was accepted", build);
+    }
+
+    @Test
+    public void callsTheVotersBeforeTheProposalIsMined() throws Exception {
+        Path recording = versionProposal();
+        List<String> lines = new ArrayList<>(Files.readAllLines(recording, StandardCharsets.UTF_8));
+        // pending for the first 10 looks at the receipt
+        int receipt = lines.size() - 1;
+        for (int i = 0; i < 10; i++) {
+            lines.add(receipt, "{\"method\": \"eth_getTransactionReceipt\", \"result\": null}");
+        }
+        Files.write(recording, lines, StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        Queue<Long> receiptLooksAtCall = new ConcurrentLinkedQueue<>();
+        HttpServer voter = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        voter.createContext("/ethops-webhook", exchange -> {
+            receiptLooksAtCall.add(node.getCalls("eth_getTransactionReceipt"));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        voter.start();
+        try {
+            SystemCredentialsProvider.getInstance().getCredentials().add(new EthereumPrivateKeyImpl(CredentialsScope.GLOBAL, "key", PRIVATE_KEY, null));
+            NodeConfiguration.get().setNodeUrl(node.getUrl());
+            j.jenkins.getGlobalNodeProperties().add(new EnvironmentVariablesNodeProperty(
+                    new EnvironmentVariablesNodeProperty.Entry("GIT_COMMIT", Hex.encodeHexString(COMMIT))));
+            FreeStyleProject project = j.createFreeStyleProject();
+            DappMainBuilder builder = new DappMainBuilder("key", "versionProposal", "fromAddress", null, 0, 0, REGISTRY,
+                    "http://" + voter.getAddress().getHostString() + ":" + voter.getAddress().getPort() + "/ethops-webhook");
+            builder.setEarlyWebhooks(true);
+            project.getBuildersList().add(builder);
+
+            FreeStyleBuild build = j.buildAndAssertSuccess(project);
+
+            assertSingleTransaction(build);
+            assertEquals(1, receiptLooksAtCall.size());
+            long looks = receiptLooksAtCall.peek();
+            assertTrue("the voter was called after " + looks + " looks at the receipt", looks < 10);
+        } finally {
+            voter.stop(0);
+        }
+    }
+
+    @Test
+    public void bootstrapsTheBundledRegistry() throws Exception {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        String deployed = "0x" + "cd".repeat(20);
+        // the manager checks the hash the node answers with against the one of the signed transaction
+        String data = DevOpsRegistry.BINARY + FunctionEncoder.encodeConstructor(List.of(
+                new DynamicArray<>(Address.class, new Address(FROM)), new Uint256(50), new Uint256(50)));
+        RawTransaction deployment = RawTransaction.createTransaction(BigInteger.ZERO, DefaultGasProvider.GAS_PRICE, DefaultGasProvider.GAS_LIMIT, "", BigInteger.ZERO, data);
+        String hash = Hash.sha3(Numeric.toHexString(TransactionEncoder.signMessage(deployment, 0x7a69, Credentials.create(PRIVATE_KEY))));
+        Files.write(recording, List.of(
+                "{\"method\": \"eth_chainId\", \"result\": \"0x7a69\"}",
+                "{\"method\": \"eth_getTransactionCount\", \"result\": \"0x0\"}",
+                "{\"method\": \"eth_sendRawTransaction\", \"result\": \"" + hash + "\"}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT.replace("\"logs\"", "\"contractAddress\": \"" + deployed + "\", \"logs\"") + "}"
+        ), StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        SystemCredentialsProvider.getInstance().getCredentials().add(new EthereumPrivateKeyImpl(CredentialsScope.GLOBAL, "key", PRIVATE_KEY, null));
+        NodeConfiguration.get().setNodeUrl(node.getUrl());
+
+        DappMainBuilder builder = new DappMainBuilder("key", "versionProposal", "bootstrap", FROM, 50, 50, null, "");
+
+        assertEquals(deployed, builder.getContractAddress());
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+    }
+
+    private FreeStyleProject project() throws IOException {
+        SystemCredentialsProvider.getInstance().getCredentials().add(new EthereumPrivateKeyImpl(CredentialsScope.GLOBAL, "key", PRIVATE_KEY, null));
+        NodeConfiguration.get().setNodeUrl(node.getUrl());
+        j.jenkins.getGlobalNodeProperties().add(new EnvironmentVariablesNodeProperty(
+                new EnvironmentVariablesNodeProperty.Entry("GIT_COMMIT", Hex.encodeHexString(COMMIT))));
+        FreeStyleProject project = j.createFreeStyleProject();
+        // unknown to Jenkins, answered with 404 and not called again
+        project.getBuildersList().add(new DappMainBuilder("key", "versionProposal", "fromAddress", null, 0, 0, REGISTRY,
+                j.getURL() + "ethops-webhook"));
+        return project;
+    }
+
+    private Path versionProposal() throws IOException {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        List<String> lines = new ArrayList<>();
+        lines.add("{\"method\": \"eth_chainId\", \"result\": \"0x7a69\"}");
+        lines.add("{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}");
+        // undecided before proposing, accepted once the build waits for it
+        lines.add(ethCall(null, DevOpsRegistryCodec.encodeVersionProposalAccepted(COMMIT), revert(TransactionPreflight.VERSION_PROPOSAL_MISSING)));
+        lines.add(ethCall(null, DevOpsRegistryCodec.encodeVersionProposalAccepted(COMMIT), "\"result\": \"0x" + "0".repeat(63) + "1\""));
+        lines.add(ethCall(FROM, DevOpsRegistryCodec.encodeCreateVersionProposal(COMMIT), "\"result\": \"0x\""));
+        lines.add("{\"method\": \"eth_getTransactionCount\", \"result\": \"0x0\"}");
+        lines.add("{\"method\": \"eth_sendRawTransaction\", \"result\": \"0x" + "ab".repeat(32) + "\"}");
+        lines.add("{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT + "}");
+        Files.write(recording, lines, StandardCharsets.UTF_8);
+        return recording;
+    }
+
+    private void assertSingleTransaction(FreeStyleBuild build) throws IOException {
+        List<TransactionJournal.Entry> entries = TransactionJournal.of(build).getEntries();
+        assertEquals(1, entries.size());
+        assertEquals(TransactionJournal.State.MINED, entries.get(0).getState());
+        assertEquals(1, entries.get(0).getTransactionHashes().size());
+        j.assertLogContains("Sent transaction", build);
+    }
+
+    /**
+     * @param from {@code null} for the reads of the registry, the sender for simulated transactions
+     */
+    static String ethCall(String from, String data, String response) throws IOException {
+        String params = ObjectMapperFactory.getObjectMapper().writeValueAsString(List.of(Transaction.createEthCallTransaction(from, REGISTRY, data), "latest"));
+        return "{\"method\": \"eth_call\", \"params\": " + params + ", " + response + "}";
+    }
+
+    static String revert(String reason) {
+        String data = TransactionPreflight.ERROR_SELECTOR + FunctionEncoder.encodeConstructor(List.of(new Utf8String(reason)));
+        return "\"error\": {\"code\": 3, \"message\": \"execution reverted: " + reason + "\", \"data\": \"" + data + "\"}";
+    }
+}
@@ -0,0 +1,165 @@
+package io.jenkins.plugins.dapps;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.slaves.EnvironmentVariablesNodeProperty;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.jenkins.plugins.dapps.DappMainBuilderTest.ethCall;
+import static io.jenkins.plugins.dapps.DappMainBuilderTest.revert;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DappVoterBuilderTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    // second account of the Hardhat network
+    private static final String PRIVATE_KEY = "59c6995e998f97a5a0044966f0945389dc9e86dae88c7a8412f4603b6b78690d";
+    private static final String FROM = "0x70997970c51812dc3a010c7d01b50e0d17dc79c8";
+    private static final byte[] COMMIT = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+    private static final String RECEIPT = "{\"transactionHash\": \"0x" + "ab".repeat(32) + "\", \"blockNumber\": \"0x11\", \"status\": \"0x1\", \"logs\": []}";
+
+    static {
+        // the receipt and a missing proposal are looked for every 10 instead of 15000 milliseconds
+        System.setProperty(TransactionAccelerator.class.getName() + ".pollInterval", "10");
+    }
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+
+    @After
+    public void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void votesOnceTheProposalIsOnChain() throws Exception {
+        // the webhook came before the proposal was mined
+        node = JsonRpcReplayNode.replay(versionVote(revert(TransactionPreflight.VERSION_PROPOSAL_MISSING), "\"result\": \"0x\"")).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        assertSingleVote(build);
+        j.assertLogContains("The proposal is not on-chain yet", build);
+        assertEquals(1, node.getCalls("eth_chainId"));
+        // the outcome, and the vote simulated before and after the proposal was mined
+        assertEquals(3, node.getCalls("eth_call"));
+        assertEquals(1, node.getCalls("eth_getTransactionCount"));
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+        assertEquals(2, node.getCalls("eth_getTransactionReceipt"));
+    }
+
+    @Test
+    public void doesNotVoteTwice() throws Exception {
+        node = JsonRpcReplayNode.replay(versionVote(revert(TransactionPreflight.VERSION_PROPOSAL_VOTED))).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        j.assertLogContains("Already voted on this VersionProposal", build);
+        assertEquals(2, node.getCalls("eth_call"));
+        assertEquals(0, node.getCalls("eth_getTransactionCount"));
+        assertEquals(0, node.getCalls("eth_sendRawTransaction"));
+    }
+
+    @Test
+    public void waitsForARejectedProposalToBeProposedAgain() throws Exception {
+        String no = "\"result\": \"0x" + "0".repeat(64) + "\"";
+        String yes = "\"result\": \"0x" + "0".repeat(63) + "1\"";
+        Path recording = versionVote("\"result\": \"0x\"");
+        List<String> lines = new ArrayList<>(Files.readAllLines(recording, StandardCharsets.UTF_8));
+        lines.set(2, ethCall(null, DevOpsRegistryCodec.encodeVersionProposalAccepted(COMMIT), no));
+        // rejected when the build starts and at the first look past the cache, proposed again after that
+        lines.add(3, ethCall(null, DevOpsRegistryCodec.encodeVersionProposalRejected(COMMIT), yes));
+        lines.add(4, ethCall(null, DevOpsRegistryCodec.encodeVersionProposalRejected(COMMIT), yes));
+        lines.add(5, ethCall(null, DevOpsRegistryCodec.encodeVersionProposalRejected(COMMIT), no));
+        Files.write(recording, lines, StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        assertSingleVote(build);
+        j.assertLogContains("The proposal was rejected before", build);
+        // the cached outcome, two looks past the cache and the simulated vote
+        assertEquals(7, node.getCalls("eth_call"));
+    }
+
+    @Test
+    public void repeatsThrottledRequestsWithoutVotingTwice() throws Exception {
+        node = JsonRpcReplayNode.replay(versionVote("\"result\": \"0x\"")).throttleRate(0.2).seed(4).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        assertSingleVote(build);
+        assertTrue(node.getCalls("eth_sendRawTransaction") >= 1);
+    }
+
+    @Test
+    public void makesNoExtraCallsOnASlowNode() throws Exception {
+        node = JsonRpcReplayNode.replay(versionVote("\"result\": \"0x\"")).latency(200).jitter(100).start();
+
+        FreeStyleBuild build = j.buildAndAssertSuccess(project());
+
+        assertSingleVote(build);
+        assertEquals(2, node.getCalls("eth_call"));
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+        assertEquals(2, node.getCalls("eth_getTransactionReceipt"));
+    }
+
+    private FreeStyleProject project() throws IOException {
+        SystemCredentialsProvider.getInstance().getCredentials().add(new EthereumPrivateKeyImpl(CredentialsScope.GLOBAL, "key", PRIVATE_KEY, null));
+        NodeConfiguration.get().setNodeUrl(node.getUrl());
+        j.jenkins.getGlobalNodeProperties().add(new EnvironmentVariablesNodeProperty(
+                new EnvironmentVariablesNodeProperty.Entry("GIVEN_GIT_COMMIT", Hex.encodeHexString(COMMIT))));
+        FreeStyleProject project = j.createFreeStyleProject();
+        project.getBuildersList().add(new DappVoterBuilder("key", "versionProposal", true, REGISTRY));
+        return project;
+    }
+
+    /**
+     * @param simulations responses to the simulated vote, the last one repeats
+     */
+    private Path versionVote(String... simulations) throws IOException {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        List<String> lines = new ArrayList<>();
+        lines.add("{\"method\": \"eth_chainId\", \"result\": \"0x7a69\"}");
+        lines.add("{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}");
+        lines.add(ethCall(null, DevOpsRegistryCodec.encodeVersionProposalAccepted(COMMIT), revert(TransactionPreflight.VERSION_PROPOSAL_MISSING)));
+        for (String simulation : simulations) {
+            lines.add(ethCall(FROM, DevOpsRegistryCodec.encodeVoteVersionProposal(COMMIT, true), simulation));
+        }
+        lines.add("{\"method\": \"eth_getTransactionCount\", \"result\": \"0x0\"}");
+        lines.add("{\"method\": \"eth_sendRawTransaction\", \"result\": \"0x" + "ab".repeat(32) + "\"}");
+        lines.add("{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT + "}");
+        Files.write(recording, lines, StandardCharsets.UTF_8);
+        return recording;
+    }
+
+    private void assertSingleVote(FreeStyleBuild build) throws IOException {
+        List<TransactionJournal.Entry> entries = TransactionJournal.of(build).getEntries();
+        assertEquals(1, entries.size());
+        assertEquals("voteVersionProposal", entries.get(0).getDescription());
+        assertEquals(TransactionJournal.State.MINED, entries.get(0).getState());
+        assertEquals(1, entries.get(0).getTransactionHashes().size());
+        j.assertLogContains("Sent transaction", build);
+    }
+}
@@ -0,0 +1,97 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Bytes20;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DevOpsRegistryCodec} with the encoding and decoding done by the generated wrapper.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.jenkins.plugins.dapps.DevOpsRegistryCodecBenchmark},
+ * add {@code -prof gc} to the options below to compare allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DevOpsRegistryCodecBenchmark {
+    private final byte[] name = new byte[20];
+    private final String result = "0x0000000000000000000000000000000000000000000000000000000000000001";
+
+    public DevOpsRegistryCodecBenchmark() {
+        Arrays.fill(name, (byte) 0x5a);
+    }
+
+    @Benchmark
+    public String encodeVersionProposalAcceptedGenerated() {
+        // same construction as DevOpsRegistry#versionProposalAccepted
+        Function function = new Function(DevOpsRegistry.FUNC_VERSIONPROPOSALACCEPTED,
+                Arrays.<Type>asList(new Bytes20(name)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {
+                }));
+        return FunctionEncoder.encode(function);
+    }
+
+    @Benchmark
+    public String encodeVersionProposalAcceptedCodec() {
+        return DevOpsRegistryCodec.encodeVersionProposalAccepted(name);
+    }
+
+    @Benchmark
+    public String encodeVoteVersionProposalGenerated() {
+        Function function = new Function(DevOpsRegistry.FUNC_VOTEVERSIONPROPOSAL,
+                Arrays.<Type>asList(new Bytes20(name), new Bool(true)),
+                Collections.<TypeReference<?>>emptyList());
+        return FunctionEncoder.encode(function);
+    }
+
+    @Benchmark
+    public String encodeVoteVersionProposalCodec() {
+        return DevOpsRegistryCodec.encodeVoteVersionProposal(name, true);
+    }
+
+    @Benchmark
+    public boolean decodeBoolGenerated() {
+        Function function = new Function(DevOpsRegistry.FUNC_VERSIONPROPOSALACCEPTED,
+                Arrays.<Type>asList(new Bytes20(name)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {
+                }));
+        List<Type> values = FunctionReturnDecoder.decode(result, function.getOutputParameters());
+        return (Boolean) values.get(0).getValue();
+    }
+
+    @Benchmark
+    public boolean decodeBoolCodec() {
+        return DevOpsRegistryCodec.decodeBool(result);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DevOpsRegistryCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
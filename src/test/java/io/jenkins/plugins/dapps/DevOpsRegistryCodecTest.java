@@ -0,0 +1,147 @@
+package io.jenkins.plugins.dapps;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.TypeReference;
+import org.web3j.abi.Utils;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Bytes20;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DevOpsRegistryCodecTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void encodesLikeFunctionEncoder() {
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            byte[] name = new byte[20];
+            random.nextBytes(name);
+            byte[] account = new byte[20];
+            random.nextBytes(account);
+            String address = "0x" + Numeric.toHexStringNoPrefix(account);
+            if (i % 2 == 1) {
+                address = address.toUpperCase().replace("0X", "0x");
+            }
+
+            assertEquals(encode("versionProposalAccepted", new Bytes20(name)), DevOpsRegistryCodec.encodeVersionProposalAccepted(name));
+            assertEquals(encode("versionProposalRejected", new Bytes20(name)), DevOpsRegistryCodec.encodeVersionProposalRejected(name));
+            assertEquals(encode("createVersionProposal", new Bytes20(name)), DevOpsRegistryCodec.encodeCreateVersionProposal(name));
+            assertEquals(encode("voteVersionProposal", new Bytes20(name), new Bool(true)), DevOpsRegistryCodec.encodeVoteVersionProposal(name, true));
+            assertEquals(encode("voteVersionProposal", new Bytes20(name), new Bool(false)), DevOpsRegistryCodec.encodeVoteVersionProposal(name, false));
+
+            assertEquals(encode("deploymentProposalAccepted", new Address(address)), DevOpsRegistryCodec.encodeDeploymentProposalAccepted(address));
+            assertEquals(encode("deploymentProposalRejected", new Address(address)), DevOpsRegistryCodec.encodeDeploymentProposalRejected(address));
+            assertEquals(encode("voters", new Address(address)), DevOpsRegistryCodec.encodeVoters(address));
+            assertEquals(encode("pipelines", new Address(address)), DevOpsRegistryCodec.encodePipelines(address));
+            assertEquals(encode("mainPipeline"), DevOpsRegistryCodec.encodeMainPipeline());
+            assertEquals(encode("createDeploymentProposal", new Address(address)), DevOpsRegistryCodec.encodeCreateDeploymentProposal(address));
+            assertEquals(encode("voteDeploymentProposal", new Address(address), new Bool(true)), DevOpsRegistryCodec.encodeVoteDeploymentProposal(address, true));
+            assertEquals(encode("voteDeploymentProposal", new Address(address), new Bool(false)), DevOpsRegistryCodec.encodeVoteDeploymentProposal(address, false));
+        }
+    }
+
+    @Test
+    public void decodesLikeFunctionReturnDecoder() {
+        for (boolean value : new boolean[]{true, false}) {
+            String encoded = FunctionEncoder.encode(new Function("f", List.of(new Bool(value)), Collections.emptyList())).substring(10);
+            List<Type> decoded = FunctionReturnDecoder.decode(encoded, Utils.convert(List.of(new TypeReference<Bool>() {
+            })));
+            assertEquals(decoded.get(0).getValue(), DevOpsRegistryCodec.decodeBool("0x" + encoded));
+        }
+        String address = "0x00000000000000000000000070997970c51812dc3a010c7d01b50e0d17dc79c8";
+        List<Type> decoded = FunctionReturnDecoder.decode(address, Utils.convert(List.of(new TypeReference<Address>() {
+        })));
+        assertEquals(decoded.get(0).toString(), DevOpsRegistryCodec.decodeAddress(address));
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        assertThrows(() -> DevOpsRegistryCodec.encodeVoters("0x1234"));
+        assertThrows(() -> DevOpsRegistryCodec.encodeVoters("0x70997970c51812dc3a010c7d01b50e0d17dc79cg"));
+        assertThrows(() -> DevOpsRegistryCodec.encodeVersionProposalAccepted(new byte[19]));
+        assertThrows(() -> DevOpsRegistryCodec.decodeBool("0x"));
+        assertThrows(() -> DevOpsRegistryCodec.decodeBool("0x" + "0".repeat(63) + "2"));
+    }
+
+    @Test
+    public void callBoolMapsOnlyRevertsToNull() throws Exception {
+        String accepted = DevOpsRegistryCodec.encodeVersionProposalAccepted(new byte[20]);
+        String rejected = DevOpsRegistryCodec.encodeVersionProposalRejected(new byte[20]);
+        String voters = DevOpsRegistryCodec.encodeVoters(REGISTRY);
+        String pipelines = DevOpsRegistryCodec.encodePipelines(REGISTRY);
+        Path recording = tmp.newFile("calls.jsonl").toPath();
+        Files.write(recording, List.of(
+                ethCall(accepted, "\"error\": {\"code\": 3, \"message\": \"execution reverted: This VersionProposal has not been initialized\"}"),
+                ethCall(rejected, "\"error\": {\"code\": -32603, \"message\": \"Error: VM Exception while processing transaction: reverted with reason string 'x'\"}"),
+                ethCall(voters, "\"result\": \"0x\""),
+                ethCall(pipelines, "\"error\": {\"code\": -32005, \"message\": \"daily request count exceeded, request rate limited\"}")
+        ), StandardCharsets.UTF_8);
+
+        try (JsonRpcReplayNode node = JsonRpcReplayNode.replay(recording).start()) {
+            Web3j web3j = Web3j.build(new HttpService(node.getUrl()));
+            try {
+                assertNull(DevOpsRegistryCodec.callBool(web3j, REGISTRY, accepted));
+                assertNull(DevOpsRegistryCodec.callBool(web3j, REGISTRY, rejected));
+                try {
+                    DevOpsRegistryCodec.callBool(web3j, REGISTRY, voters);
+                    fail("empty return data is no undecided proposal");
+                } catch (IOException expected) {
+                    assertTrue(expected.getMessage().contains(REGISTRY));
+                }
+                try {
+                    DevOpsRegistryCodec.callBool(web3j, REGISTRY, pipelines);
+                    fail("a rate limited call is no revert");
+                } catch (IOException expected) {
+                    assertTrue(expected.getMessage().contains("rate limited"));
+                }
+                assertFalse(DevOpsRegistryCodec.isRevert(new Response.Error(JsonRpcReplayNode.INJECTED_ERROR, "injected error")));
+            } finally {
+                web3j.shutdown();
+            }
+        }
+    }
+
+    private static String encode(String name, Type<?>... parameters) {
+        return FunctionEncoder.encode(new Function(name, List.of(parameters), Collections.emptyList()));
+    }
+
+    private static String ethCall(String data, String response) {
+        return "{\"method\": \"eth_call\", \"params\": [{\"to\": \"" + REGISTRY + "\", \"data\": \"" + data + "\"}, \"latest\"], " + response + "}";
+    }
+
+    private static void assertThrows(Runnable runnable) {
+        try {
+            runnable.run();
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package io.jenkins.plugins.dapps;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.web3j.protocol.ObjectMapperFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for an Ethereum JSON-RPC node, so that the builders, watchers and benchmarks can run against a slow,
+ * lossy or rate-limited node without network access.
+ * <p>
+ * A recording is a file of JSON lines {@code {"method": ..., "params": [...], "result": ...}} or with an
+ * {@code "error"} object instead of the result. A request is answered with the next recorded response of the same
+ * method and params, the last one repeats, so a receipt can be recorded as {@code null} first and then mined. A line
+ * without {@code "params"} answers every request of its method that has no exact match. {@link #record} forwards the
+ * requests to a real node and appends every interaction to the recording.
+ * <p>
+ * Every HTTP request waits {@code latency} plus a uniform random {@code jitter} and then fails with probability
+ * {@code throttleRate} with HTTP 429; every call in it fails with probability {@code errorRate} with a JSON-RPC
+ * error. The random numbers come from {@code seed}, so a single-threaded run injects the same faults every time.
+ * {@link #getCalls} counts the calls per method, including the failed ones.
+ * <pre>
+ * try (JsonRpcReplayNode node = JsonRpcReplayNode.replay(recording).latency(50).jitter(20).throttleRate(0.1).start()) {
+ *     Web3j web3j = Web3j.build(new RateLimitedHttpService(node.getUrl(), limiter));
+ *     ...
+ *     assertThat(node.getCalls("eth_call"), lessThanOrEqualTo(2L));
+ * }
+ * </pre>
+ */
+public final class JsonRpcReplayNode implements AutoCloseable {
+    static final int INJECTED_ERROR = -32000;
+
+    private static final ObjectMapper MAPPER = ObjectMapperFactory.getObjectMapper();
+
+    private final Map<String, Deque<JsonNode>> responses = new HashMap<>();
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final String upstreamUrl;
+    private final Path recording;
+    private long latency;
+    private long jitter;
+    private double errorRate;
+    private double throttleRate;
+    private Random random = new Random(0);
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private JsonRpcReplayNode(String upstreamUrl, Path recording) {
+        this.upstreamUrl = upstreamUrl;
+        this.recording = recording;
+    }
+
+    /**
+     * @param recording JSON lines of earlier interactions
+     */
+    public static JsonRpcReplayNode replay(Path recording) throws IOException {
+        JsonRpcReplayNode node = new JsonRpcReplayNode(null, recording);
+        for (String line : Files.readAllLines(recording, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                node.add(MAPPER.readTree(line));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @param upstreamUrl URL of the node to forward the requests to
+     * @param recording   file the interactions are appended to
+     */
+    public static JsonRpcReplayNode record(String upstreamUrl, Path recording) {
+        return new JsonRpcReplayNode(upstreamUrl, recording);
+    }
+
+    /**
+     * @param millis fixed delay of every response
+     */
+    public JsonRpcReplayNode latency(long millis) {
+        this.latency = millis;
+        return this;
+    }
+
+    /**
+     * @param millis largest random delay added to the latency
+     */
+    public JsonRpcReplayNode jitter(long millis) {
+        this.jitter = millis;
+        return this;
+    }
+
+    /**
+     * @param rate share of requests answered with a JSON-RPC error, between 0 and 1
+     */
+    public JsonRpcReplayNode errorRate(double rate) {
+        this.errorRate = rate;
+        return this;
+    }
+
+    /**
+     * @param rate share of requests answered with HTTP 429, between 0 and 1
+     */
+    public JsonRpcReplayNode throttleRate(double rate) {
+        this.throttleRate = rate;
+        return this;
+    }
+
+    public JsonRpcReplayNode seed(long seed) {
+        this.random = new Random(seed);
+        return this;
+    }
+
+    /**
+     * Listens on a free port of the loopback interface.
+     */
+    public JsonRpcReplayNode start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "JsonRpcReplayNode");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return this;
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @return requests received for the method so far
+     */
+    public long getCalls(String method) {
+        AtomicLong count = calls.get(method);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return requests received so far by method, sorted by method
+     */
+    public Map<String, Long> getCalls() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        calls.forEach((method, count) -> snapshot.put(method, count.get()));
+        return snapshot;
+    }
+
+    public long getTotalCalls() {
+        return calls.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public void resetCalls() {
+        calls.clear();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            for (JsonNode call : request.isArray() ? request : MAPPER.createArrayNode().add(request)) {
+                calls.computeIfAbsent(call.path("method").asText(), m -> new AtomicLong()).incrementAndGet();
+            }
+            long delay;
+            boolean throttled;
+            synchronized (this) {
+                delay = latency + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+                throttled = random.nextDouble() < throttleRate;
+            }
+            TimeUnit.MILLISECONDS.sleep(delay);
+            if (throttled) {
+                byte[] body = "Too Many Requests".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(429, body.length);
+                exchange.getResponseBody().write(body);
+                return;
+            }
+
+            JsonNode response;
+            if (request.isArray()) {
+                ArrayNode batch = MAPPER.createArrayNode();
+                for (JsonNode call : request) {
+                    batch.add(answer(call));
+                }
+                response = batch;
+            } else {
+                response = answer(request);
+            }
+            byte[] body = MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private JsonNode answer(JsonNode call) throws IOException {
+        String method = call.path("method").asText();
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", call.get("id"));
+        boolean failed;
+        synchronized (this) {
+            failed = random.nextDouble() < errorRate;
+        }
+        if (failed) {
+            response.set("error", MAPPER.createObjectNode().put("code", INJECTED_ERROR).put("message", "injected error"));
+            return response;
+        }
+
+        JsonNode recorded = upstreamUrl != null ? forward(call) : next(method, call.path("params"));
+        if (recorded == null) {
+            response.set("error", MAPPER.createObjectNode().put("code", -32601).put("message", "No recorded response for " + method));
+        } else if (recorded.has("error")) {
+            response.set("error", recorded.get("error"));
+        } else {
+            response.set("result", recorded.get("result"));
+        }
+        return response;
+    }
+
+    private synchronized JsonNode next(String method, JsonNode params) {
+        Deque<JsonNode> recorded = responses.get(key(method, params));
+        if (recorded == null) {
+            recorded = responses.get(key(method, null));
+        }
+        if (recorded == null) {
+            return null;
+        }
+        return recorded.size() > 1 ? recorded.removeFirst() : recorded.getFirst();
+    }
+
+    private JsonNode forward(JsonNode call) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(upstreamUrl).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                MAPPER.writeValue(out, call);
+            }
+            JsonNode response;
+            try (InputStream in = connection.getInputStream()) {
+                response = MAPPER.readTree(in);
+            }
+            ObjectNode interaction = MAPPER.createObjectNode();
+            interaction.put("method", call.path("method").asText());
+            interaction.set("params", call.path("params"));
+            if (response.has("error")) {
+                interaction.set("error", response.get("error"));
+            } else {
+                interaction.set("result", response.get("result"));
+            }
+            append(interaction);
+            return interaction;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private synchronized void append(JsonNode interaction) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(recording, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(MAPPER.writeValueAsString(interaction));
+            writer.newLine();
+        }
+    }
+
+    private void add(JsonNode interaction) {
+        responses.computeIfAbsent(key(interaction.path("method").asText(), interaction.get("params")), k -> new ArrayDeque<>())
+                .add(interaction);
+    }
+
+    private static String key(String method, JsonNode params) {
+        try {
+            return params == null || params.isMissingNode() ? method : method + MAPPER.writeValueAsString(params);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ProposalCreatedTriggerTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final String DEPLOYMENT = "0x70997970c51812dc3a010c7d01b50e0d17dc79c8";
+    private static final byte[] COMMIT = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+
+    @After
+    public void stop() {
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void startsVersionVotesWithTheDefaultContractAddress() throws Exception {
+        FreeStyleProject project = project();
+        ProposalCreatedTrigger trigger = new ProposalCreatedTrigger(REGISTRY);
+        project.addTrigger(trigger);
+
+        trigger.onVersionProposalCreated(null, COMMIT);
+        j.waitUntilNoActivity();
+
+        ParametersAction parameters = parameters(project);
+        assertEquals(Hex.encodeHexString(COMMIT), value(parameters, "GIVEN_GIT_COMMIT"));
+        assertEquals("version", value(parameters, "VOTING_TYPE"));
+        assertEquals("none", value(parameters, "GIVEN_CONTRACT_ADDRESS"));
+    }
+
+    @Test
+    public void startsDeploymentVotesWithTheDefaultCommit() throws Exception {
+        FreeStyleProject project = project();
+        ProposalCreatedTrigger trigger = new ProposalCreatedTrigger(REGISTRY);
+        project.addTrigger(trigger);
+
+        trigger.onDeploymentProposalCreated(null, DEPLOYMENT);
+        j.waitUntilNoActivity();
+
+        ParametersAction parameters = parameters(project);
+        assertEquals(DEPLOYMENT, value(parameters, "GIVEN_CONTRACT_ADDRESS"));
+        assertEquals("deployment", value(parameters, "VOTING_TYPE"));
+        assertEquals("none", value(parameters, "GIVEN_GIT_COMMIT"));
+    }
+
+    private FreeStyleProject project() throws Exception {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        Files.write(recording, List.of(
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}",
+                "{\"method\": \"eth_getLogs\", \"result\": []}"
+        ), StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        NodeConfiguration.get().setNodeUrl(node.getUrl());
+        FreeStyleProject project = j.createFreeStyleProject();
+        project.addProperty(new ParametersDefinitionProperty(
+                new StringParameterDefinition("GIVEN_GIT_COMMIT", "none"),
+                new StringParameterDefinition("GIVEN_CONTRACT_ADDRESS", "none"),
+                new StringParameterDefinition("VOTING_TYPE", "none")));
+        return project;
+    }
+
+    private static ParametersAction parameters(FreeStyleProject project) {
+        FreeStyleBuild build = project.getLastBuild();
+        assertNotNull("the trigger started a build", build);
+        return build.getAction(ParametersAction.class);
+    }
+
+    private static String value(ParametersAction parameters, String name) {
+        StringParameterValue value = (StringParameterValue) parameters.getParameter(name);
+        assertNotNull(name + " is set", value);
+        return value.getValue();
+    }
+}
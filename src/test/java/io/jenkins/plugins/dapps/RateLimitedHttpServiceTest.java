@@ -0,0 +1,90 @@
+package io.jenkins.plugins.dapps;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimitedHttpServiceTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final RpcRateLimiter limiter = new RpcRateLimiter();
+    private JsonRpcReplayNode node;
+    private Web3j web3j;
+
+    @After
+    public void stop() {
+        if (web3j != null) {
+            web3j.shutdown();
+        }
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void repeatsThrottledRequestsFromBuilds() throws Exception {
+        start(1);
+
+        try {
+            web3j.ethBlockNumber().send();
+            fail("every request is throttled");
+        } catch (ClientConnectionException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Invalid response received: 429"));
+        }
+        assertEquals(RateLimitedHttpService.THROTTLED_RETRIES + 1, node.getCalls("eth_blockNumber"));
+    }
+
+    @Test
+    public void failsThrottledBackgroundRequestsRightAway() throws Exception {
+        start(1);
+
+        try {
+            RpcRateLimiter.sheddable(() -> web3j.ethBlockNumber().send());
+            fail("every request is throttled");
+        } catch (ClientConnectionException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Invalid response received: 429"));
+        }
+        assertEquals(1, node.getCalls("eth_blockNumber"));
+    }
+
+    @Test
+    public void answersOnceTheNodeRecovers() throws Exception {
+        // the first draw of this seed is below a half, the second one above
+        start(0.5).seed(31676);
+
+        BigInteger block = web3j.ethBlockNumber().send().getBlockNumber();
+
+        assertEquals(BigInteger.valueOf(0x10), block);
+        assertEquals(2, node.getCalls("eth_blockNumber"));
+    }
+
+    @Test
+    public void readsTheMethodOfARequest() {
+        assertEquals("eth_call", RateLimitedHttpService.method("{\"jsonrpc\":\"2.0\",\"method\": \"eth_call\",\"params\":[]}"));
+        assertEquals(null, RateLimitedHttpService.method("{}"));
+    }
+
+    private JsonRpcReplayNode start(double throttleRate) throws IOException {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        Files.write(recording, List.of("{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}"), StandardCharsets.UTF_8);
+        limiter.configure(100, 10, 10, 10);
+        node = JsonRpcReplayNode.replay(recording).throttleRate(throttleRate).start();
+        web3j = Web3j.build(new RateLimitedHttpService(node.getUrl(), limiter));
+        return node;
+    }
+}
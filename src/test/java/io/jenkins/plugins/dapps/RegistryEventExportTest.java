@@ -0,0 +1,79 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import org.junit.Test;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RegistryEventExportTest {
+    private static final String VOTER = "70997970c51812dc3a010c7d01b50e0d17dc79c8";
+    private static final String PROPOSAL = "0102030405060708090a0b0c0d0e0f1011121314";
+
+    @Test
+    public void decodesIndexedAndLegacyLogsAlike() throws Exception {
+        String topic0 = EventEncoder.encode(DevOpsRegistry.VERSIONVOTECAST_EVENT);
+        Log indexed = log(List.of(topic0, "0x" + "0".repeat(24) + VOTER, "0x" + PROPOSAL + "0".repeat(24)), "0x" + "0".repeat(63) + "1");
+        Log legacy = log(List.of(topic0), "0x" + "0".repeat(24) + VOTER + PROPOSAL + "0".repeat(24) + "0".repeat(63) + "1");
+
+        Map<String, Object> row = RegistryEventExport.decode(indexed);
+        assertEquals("VersionVoteCast", row.get("event"));
+        assertEquals("0x" + VOTER, row.get("voter"));
+        assertEquals(PROPOSAL, row.get("subject"));
+        assertEquals(true, row.get("accepted"));
+        assertEquals(row, RegistryEventExport.decode(legacy));
+    }
+
+    @Test
+    public void failsOnUnknownLayouts() {
+        String topic0 = EventEncoder.encode(DevOpsRegistry.VERSIONVOTECAST_EVENT);
+        try {
+            RegistryEventExport.decode(log(List.of(topic0, "0x" + "0".repeat(24) + VOTER), "0x"));
+            fail("a log with one of two indexed parameters cannot be decoded");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("VersionVoteCast"));
+        }
+    }
+
+    @Test
+    public void splitsOnlyOnRangeLimits() {
+        assertTrue(RegistryEventExport.isRangeLimit(new IOException("query returned more than 10000 results")));
+        assertTrue(RegistryEventExport.isRangeLimit(new IOException("Log response size exceeded. You can make eth_getLogs requests with up to a 2K block range")));
+        assertTrue(RegistryEventExport.isRangeLimit(new IOException("exceed maximum block range: 5000")));
+        assertTrue(RegistryEventExport.isRangeLimit(new SocketTimeoutException()));
+
+        assertFalse(RegistryEventExport.isRangeLimit(new IOException("Invalid response received: 429; Too Many Requests")));
+        assertFalse(RegistryEventExport.isRangeLimit(new IOException("daily request count exceeded, request rate limited")));
+        assertFalse(RegistryEventExport.isRangeLimit(new IOException("project ID request rate exceeded")));
+        assertFalse(RegistryEventExport.isRangeLimit(new IOException("Your app has exceeded its compute units per second capacity. Check the rate limit docs")));
+        assertFalse(RegistryEventExport.isRangeLimit(new IOException("limit exceeded")));
+    }
+
+    @Test
+    public void clampsConcurrency() {
+        assertEquals(1, RegistryEventExport.clampConcurrency(0));
+        assertEquals(1, RegistryEventExport.clampConcurrency(-3));
+        assertEquals(4, RegistryEventExport.clampConcurrency(4));
+        assertEquals(RegistryEventExport.MAX_CONCURRENCY, RegistryEventExport.clampConcurrency(100000));
+    }
+
+    private static Log log(List<String> topics, String data) {
+        Log log = new Log();
+        log.setTopics(topics);
+        log.setData(data);
+        log.setBlockNumber("0x11");
+        log.setLogIndex("0x0");
+        log.setTransactionHash("0x" + "ab".repeat(32));
+        return log;
+    }
+}
@@ -0,0 +1,84 @@
+package io.jenkins.plugins.dapps;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.web3j.protocol.Web3j;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a proposal status read against a {@link JsonRpcReplayNode} with the latency and fault rates of the
+ * parameters, and prints the JSON-RPC calls each read took, so that changes to the retry and caching paths can be
+ * compared without a chain.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.jenkins.plugins.dapps.RegistryReadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class RegistryReadBenchmark {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+
+    @Param({"20"})
+    public long latency;
+
+    @Param({"10"})
+    public long jitter;
+
+    @Param({"0", "0.05"})
+    public double throttleRate;
+
+    private final byte[] name = new byte[20];
+    private JsonRpcReplayNode node;
+    private Web3j web3j;
+    private long reads;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, URISyntaxException {
+        Arrays.fill(name, (byte) 0x5a);
+        Path recording = Path.of(RegistryReadBenchmark.class.getResource("registry-reads.jsonl").toURI());
+        node = JsonRpcReplayNode.replay(recording).latency(latency).jitter(jitter).throttleRate(throttleRate).seed(42).start();
+        web3j = Web3j.build(new RateLimitedHttpService(node.getUrl(), new RpcRateLimiter()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        System.out.println();
+        node.getCalls().forEach((method, calls) -> System.out.printf("%s: %.2f calls per read%n", method, (double) calls / reads));
+        web3j.shutdown();
+        node.close();
+    }
+
+    @Benchmark
+    public ProposalOutcome versionOutcome() throws IOException {
+        reads++;
+        return TransactionPreflight.versionOutcome(web3j, REGISTRY, name);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RegistryReadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,231 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.http.HttpService;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RegistryStateTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final String FIRST = "01".repeat(20);
+    private static final String SECOND = "02".repeat(20);
+    private static final String THIRD = "03".repeat(20);
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+    private Web3j web3j;
+
+    @After
+    public void stop() {
+        if (web3j != null) {
+            web3j.shutdown();
+        }
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void answersUnchangedStateWithNotModified() throws Exception {
+        RegistryState state = start();
+
+        Response first = new Response();
+        state.doIndex(request(Map.of(), Map.of()), first.proxy());
+        assertEquals(HttpServletResponse.SC_OK, first.status);
+        String etag = first.headers.get("ETag");
+        assertNotNull(etag);
+        assertTrue(first.body.toString(), first.body.toString().contains("\"proposals\":2"));
+
+        Response second = new Response();
+        state.doIndex(request(Map.of(), Map.of("If-None-Match", etag)), second.proxy());
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, second.status);
+        assertEquals("", second.body.toString());
+
+        state.onLogs(null, BigInteger.valueOf(0x12), BigInteger.valueOf(0x12), List.of(created(THIRD, 0x12)));
+        Response third = new Response();
+        state.doIndex(request(Map.of(), Map.of("If-None-Match", etag)), third.proxy());
+        assertEquals(HttpServletResponse.SC_OK, third.status);
+        assertFalse(etag.equals(third.headers.get("ETag")));
+    }
+
+    @Test
+    public void longPollReturnsTheNextChange() throws Exception {
+        RegistryState state = start();
+
+        Response response = new Response();
+        Thread poll = new Thread(() -> {
+            try {
+                state.doProposals(request(Map.of("since", "2", "wait", "30"), Map.of()), response.proxy());
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        poll.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (poll.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("the request waits for a change", Thread.State.TIMED_WAITING, poll.getState());
+
+        state.onLogs(null, BigInteger.valueOf(0x12), BigInteger.valueOf(0x12), List.of(created(THIRD, 0x12)));
+        poll.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(poll.isAlive());
+        String body = response.body.toString();
+        assertTrue(body, body.contains("\"total\":1"));
+        assertTrue(body, body.contains(THIRD));
+        assertFalse(body, body.contains(FIRST));
+    }
+
+    @Test
+    public void streamsChangesAfterTheLastEventId() throws Exception {
+        RegistryState state = start();
+
+        Response all = new Response();
+        state.doEvents(request(Map.of("since", "0"), Map.of()), all.proxy());
+        String events = all.body.toString();
+        assertTrue(events, events.startsWith("id: 1\nevent: proposal\n"));
+        assertTrue(events, events.contains("id: 2\nevent: proposal\n"));
+
+        Response reconnected = new Response();
+        state.doEvents(request(Map.of("since", "0"), Map.of("Last-Event-ID", "1")), reconnected.proxy());
+        events = reconnected.body.toString();
+        assertTrue(events, events.startsWith("id: 2\nevent: proposal\n"));
+        assertFalse(events, events.contains(FIRST));
+        assertEquals("text/event-stream;charset=UTF-8", reconnected.contentType);
+    }
+
+    @Test
+    public void readsUnindexedEventsOfOlderRegistries() throws Exception {
+        // registries deployed before the keys were indexed carry the key in the data
+        RegistryState state = start();
+
+        Response response = new Response();
+        state.doProposals(request(Map.of("type", "version"), Map.of()), response.proxy());
+        String body = response.body.toString();
+        assertTrue(body, body.contains(FIRST));
+        assertTrue(body, body.contains(SECOND));
+    }
+
+    private RegistryState start() throws Exception {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        Files.write(recording, List.of(
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0x11\"}",
+                "{\"method\": \"eth_getLogs\", \"result\": [" + json(legacyCreated(FIRST, 0x10)) + ", " + json(created(SECOND, 0x11)) + "]}"
+        ), StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        web3j = Web3j.build(new HttpService(node.getUrl()));
+        RegistryState state = new RegistryState(web3j, REGISTRY);
+        state.backfill();
+        state.awaitBackfill();
+        return state;
+    }
+
+    private static Log created(String name, long block) {
+        return log(List.of(EventEncoder.encode(DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT), "0x" + name + "0".repeat(24)), "0x", block);
+    }
+
+    private static Log legacyCreated(String name, long block) {
+        return log(List.of(EventEncoder.encode(DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT)), "0x" + name + "0".repeat(24), block);
+    }
+
+    private static Log log(List<String> topics, String data, long block) {
+        return new Log(false, "0x0", "0x0", "0x" + "ab".repeat(32), "0x" + "cd".repeat(32),
+                "0x" + Long.toHexString(block), REGISTRY, data, null, topics);
+    }
+
+    private static String json(Log log) {
+        return "{\"address\": \"" + log.getAddress() + "\", \"blockNumber\": \"0x" + log.getBlockNumber().toString(16) + "\","
+                + " \"logIndex\": \"0x0\", \"transactionIndex\": \"0x0\", \"transactionHash\": \"" + log.getTransactionHash() + "\","
+                + " \"blockHash\": \"" + log.getBlockHash() + "\", \"data\": \"" + log.getData() + "\", \"removed\": false,"
+                + " \"topics\": [\"" + String.join("\", \"", log.getTopics()) + "\"]}";
+    }
+
+    private static StaplerRequest request(Map<String, String> parameters, Map<String, String> headers) {
+        return (StaplerRequest) Proxy.newProxyInstance(RegistryStateTest.class.getClassLoader(), new Class<?>[]{StaplerRequest.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getParameter":
+                            return parameters.get((String) args[0]);
+                        case "getHeader":
+                            return headers.get((String) args[0]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Records what is written to a client, which goes away at the first flush to end event streams.
+     */
+    private static final class Response {
+        private final Map<String, String> headers = new HashMap<>();
+        private final StringWriter body = new StringWriter();
+        private int status = HttpServletResponse.SC_OK;
+        private String contentType;
+
+        StaplerResponse proxy() {
+            PrintWriter writer = new PrintWriter(new Writer() {
+                @Override
+                public void write(char[] buffer, int offset, int length) {
+                    body.write(buffer, offset, length);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    throw new IOException("client gone");
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+            return (StaplerResponse) Proxy.newProxyInstance(RegistryStateTest.class.getClassLoader(), new Class<?>[]{StaplerResponse.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setHeader":
+                                headers.put((String) args[0], (String) args[1]);
+                                return null;
+                            case "setStatus":
+                                status = (Integer) args[0];
+                                return null;
+                            case "setContentType":
+                                contentType = (String) args[0];
+                                return null;
+                            case "getWriter":
+                                return writer;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import hudson.util.FormValidation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegistryValidationTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final String MAIN_PIPELINE = "0xf39fd6e51aad88f6f4ce6ab8827279cfffb92266";
+    private static final String OTHER = "0x70997970c51812dc3a010c7d01b50e0d17dc79c8";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void recognizesRegistriesByTheirDispatcher() {
+        String binary = DevOpsRegistry.BINARY;
+        assertTrue(RegistryValidation.isRegistry(binary.substring(binary.indexOf("f3fe6080604052") + 4)));
+        assertFalse(RegistryValidation.isRegistry("6080604052600080fd"));
+    }
+
+    @Test
+    public void acceptsTheMainPipelineOfRegistriesWithoutPipelineProposals() throws Exception {
+        String revert = "\"error\": {\"code\": -32603, \"message\": \"Error: Transaction reverted: function selector was not recognized\"}";
+        Path recording = tmp.newFile("legacy.jsonl").toPath();
+        Files.write(recording, List.of(
+                "{\"method\": \"eth_getCode\", \"result\": \"0x6080604052600080fd\"}",
+                ethCall(DevOpsRegistryCodec.encodePipelines(MAIN_PIPELINE), revert),
+                ethCall(DevOpsRegistryCodec.encodePipelines(OTHER), revert),
+                ethCall(DevOpsRegistryCodec.encodeMainPipeline(), "\"result\": \"0x" + "0".repeat(24) + MAIN_PIPELINE.substring(2) + "\"")
+        ), StandardCharsets.UTF_8);
+
+        try (JsonRpcReplayNode node = JsonRpcReplayNode.replay(recording).start()) {
+            assertEquals(FormValidation.Kind.OK, RegistryValidation.checkPipeline(node.getUrl(), REGISTRY, MAIN_PIPELINE).kind);
+            assertEquals(FormValidation.Kind.ERROR, RegistryValidation.checkPipeline(node.getUrl(), REGISTRY, OTHER).kind);
+        }
+    }
+
+    private static String ethCall(String data, String response) {
+        return "{\"method\": \"eth_call\", \"params\": [{\"to\": \"" + REGISTRY + "\", \"data\": \"" + data + "\"}, \"latest\"], " + response + "}";
+    }
+}
@@ -0,0 +1,160 @@
+package io.jenkins.plugins.dapps;
+
+import de.tu_berlin.sbe.DevOpsRegistry;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class RegistryWatcherTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final byte[] NAME = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20};
+    private static final String UNDECIDED = "\"error\": {\"code\": 3, \"message\": \"execution reverted: This VersionProposal has not been initialized\"}";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+    private Web3j web3j;
+
+    @After
+    public void stop() {
+        if (web3j != null) {
+            web3j.shutdown();
+        }
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void completesWaitersFromUnindexedEvents() throws Exception {
+        // registries deployed before the keys were indexed carry the key in the data
+        String data = "0x" + Hex.encodeHexString(NAME) + "0".repeat(24);
+        RegistryWatcher watcher = start(log(List.of(EventEncoder.encode(DevOpsRegistry.VERSIONACCEPTED_EVENT)), data));
+
+        CompletableFuture<ProposalOutcome> outcome = waitFor(watcher);
+        watcher.poll();
+        assertEquals(ProposalOutcome.ACCEPTED, outcome.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void completesWaitersFromIndexedEvents() throws Exception {
+        RegistryWatcher watcher = start(log(List.of(EventEncoder.encode(DevOpsRegistry.VERSIONREJECTED_EVENT),
+                RegistryWatcher.topic(RegistryWatcher.versionKey(NAME))), "0x"));
+
+        CompletableFuture<ProposalOutcome> outcome = waitFor(watcher);
+        watcher.poll();
+        assertEquals(ProposalOutcome.REJECTED, outcome.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stopsFollowingWithTheLastWaiter() throws Exception {
+        RegistryWatcher watcher = start(log(List.of(EventEncoder.encode(DevOpsRegistry.VERSIONACCEPTED_EVENT),
+                RegistryWatcher.topic(RegistryWatcher.versionKey(NAME))), "0x"));
+
+        CompletableFuture<ProposalOutcome> outcome = waitFor(watcher);
+        watcher.poll();
+        assertEquals(ProposalOutcome.ACCEPTED, outcome.get(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (watcher.isFollowing() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse("the cached outcome keeps the watcher running", watcher.isFollowing());
+
+        // the decided outcome is still cached
+        long calls = node.getTotalCalls();
+        assertEquals(ProposalOutcome.ACCEPTED, watcher.versionOutcome(NAME));
+        assertEquals(calls, node.getTotalCalls());
+    }
+
+    @Test
+    public void ignoresEventsOfOtherProposals() throws Exception {
+        byte[] other = NAME.clone();
+        other[0] = 42;
+        String data = "0x" + Hex.encodeHexString(other) + "0".repeat(24);
+        RegistryWatcher watcher = start(log(List.of(EventEncoder.encode(DevOpsRegistry.VERSIONACCEPTED_EVENT)), data));
+
+        CompletableFuture<ProposalOutcome> outcome = waitFor(watcher);
+        watcher.poll();
+        assertFalse(outcome.isDone());
+        outcome.cancel(false);
+    }
+
+    @Test
+    public void reportsProposalsCreatedSinceTheGivenBlock() throws Exception {
+        RegistryWatcher watcher = start(log(List.of(EventEncoder.encode(DevOpsRegistry.VERSIONPROPOSALCREATED_EVENT),
+                RegistryWatcher.topic(RegistryWatcher.versionKey(NAME))), "0x"));
+        List<String> created = new ArrayList<>();
+        RegistryWatcher.Listener listener = new RegistryWatcher.Listener() {
+            @Override
+            public void onVersionProposalCreated(RegistryWatcher watcher, byte[] name) {
+                created.add(Hex.encodeHexString(name));
+            }
+
+            @Override
+            public void onDeploymentProposalCreated(RegistryWatcher watcher, String newDeployment) {
+                created.add(newDeployment);
+            }
+        };
+
+        watcher.addListener(listener, BigInteger.valueOf(8));
+        try {
+            assertEquals(List.of(Hex.encodeHexString(NAME)), created);
+            assertEquals(1, node.getCalls("eth_getLogs"));
+        } finally {
+            watcher.removeListener(listener);
+        }
+    }
+
+    private RegistryWatcher start(String log) throws Exception {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        List<String> lines = new ArrayList<>();
+        lines.add("{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}");
+        lines.add("{\"method\": \"eth_blockNumber\", \"result\": \"0x11\"}");
+        lines.add("{\"method\": \"eth_call\", " + UNDECIDED + "}");
+        lines.add("{\"method\": \"eth_getLogs\", \"result\": [" + log + "]}");
+        Files.write(recording, lines, StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        web3j = Web3j.build(new HttpService(node.getUrl()));
+        return new RegistryWatcher(web3j, REGISTRY);
+    }
+
+    private CompletableFuture<ProposalOutcome> waitFor(RegistryWatcher watcher) throws Exception {
+        CompletableFuture<ProposalOutcome> outcome = CompletableFuture.supplyAsync(() -> {
+            try {
+                return watcher.awaitVersionProposal(NAME, Duration.ofSeconds(30));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        // the watcher has read the chain head once the waiter looks at the proposal
+        while (watcher.getWaiterCount() == 0 || node.getCalls("eth_call") == 0) {
+            Thread.sleep(10);
+        }
+        return outcome;
+    }
+
+    private static String log(List<String> topics, String data) {
+        return "{\"address\": \"" + REGISTRY + "\", \"blockNumber\": \"0x11\", \"logIndex\": \"0x0\", \"transactionIndex\": \"0x0\","
+                + " \"transactionHash\": \"0x" + "ab".repeat(32) + "\", \"blockHash\": \"0x" + "cd".repeat(32) + "\","
+                + " \"data\": \"" + data + "\", \"removed\": false, \"topics\": [\"" + String.join("\", \"", topics) + "\"]}";
+    }
+}
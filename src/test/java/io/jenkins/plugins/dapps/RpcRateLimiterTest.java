@@ -0,0 +1,160 @@
+package io.jenkins.plugins.dapps;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RpcRateLimiterTest {
+    private final RpcRateLimiter limiter = new RpcRateLimiter();
+
+    @Test
+    public void sendsSubmissionsBeforeWaitingReads() throws Exception {
+        // a token every 500 milliseconds, the only one is taken right away
+        limiter.configure(2, 1, 10, 10);
+        limiter.acquire(RpcRateLimiter.Lane.READ);
+        List<RpcRateLimiter.Lane> order = new CopyOnWriteArrayList<>();
+
+        Thread read = acquire(RpcRateLimiter.Lane.READ, order);
+        awaitWaiting(read);
+        Thread receipt = acquire(RpcRateLimiter.Lane.RECEIPT, order);
+        awaitWaiting(receipt);
+        Thread submission = acquire(RpcRateLimiter.Lane.SUBMISSION, order);
+        for (Thread thread : List.of(read, receipt, submission)) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertEquals(List.of(RpcRateLimiter.Lane.SUBMISSION, RpcRateLimiter.Lane.RECEIPT, RpcRateLimiter.Lane.READ), order);
+    }
+
+    @Test
+    public void shedsReadsBeyondTheQueueLimit() throws Exception {
+        limiter.configure(0.1, 1, 1, 30);
+        limiter.acquire(RpcRateLimiter.Lane.READ);
+        Thread queued = new Thread(() -> {
+            try {
+                RpcRateLimiter.sheddable(() -> {
+                    limiter.acquire(RpcRateLimiter.Lane.READ);
+                    return null;
+                });
+            } catch (IOException ignored) {
+                // interrupted at the end of the test
+            }
+        });
+        queued.start();
+        awaitWaiting(queued);
+
+        try {
+            RpcRateLimiter.sheddable(() -> {
+                limiter.acquire(RpcRateLimiter.Lane.READ);
+                return null;
+            });
+            fail("one read is queued already");
+        } catch (RpcRateLimiter.OverloadedException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Too many queued requests"));
+        } finally {
+            queued.interrupt();
+            queued.join();
+        }
+    }
+
+    @Test
+    public void shedsReadsAfterTheWaitDeadline() throws Exception {
+        limiter.configure(0.01, 1, 10, 1);
+        limiter.acquire(RpcRateLimiter.Lane.READ);
+
+        long start = System.nanoTime();
+        try {
+            RpcRateLimiter.sheddable(() -> {
+                limiter.acquire(RpcRateLimiter.Lane.READ);
+                return null;
+            });
+            fail("no token becomes free within a second");
+        } catch (RpcRateLimiter.OverloadedException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("No capacity"));
+        }
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("waited " + waited + " ms", waited >= 900 && waited < 5000);
+    }
+
+    @Test
+    public void buildsWaitPastTheReadDeadline() throws Exception {
+        // reads outside of sheddable are not bound by the deadline
+        limiter.configure(1, 1, 0, 0);
+        limiter.acquire(RpcRateLimiter.Lane.READ);
+
+        long start = System.nanoTime();
+        limiter.acquire(RpcRateLimiter.Lane.READ);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 500);
+    }
+
+    @Test
+    public void releasesWaitingRequestsWhenReconfigured() throws Exception {
+        limiter.configure(0.01, 1, 10, 10);
+        limiter.acquire(RpcRateLimiter.Lane.READ);
+        List<RpcRateLimiter.Lane> done = new CopyOnWriteArrayList<>();
+
+        Thread faster = acquire(RpcRateLimiter.Lane.SUBMISSION, done);
+        awaitWaiting(faster);
+        limiter.configure(100, 1, 10, 10);
+        faster.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse("a higher rate frees a token soon", faster.isAlive());
+
+        limiter.configure(0.01, 1, 10, 10);
+        limiter.throttled();
+        Thread disabled = acquire(RpcRateLimiter.Lane.SUBMISSION, done);
+        awaitWaiting(disabled);
+        limiter.configure(0, 1, 10, 10);
+        disabled.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse("a disabled limiter lets waiting requests through", disabled.isAlive());
+        assertEquals(2, done.size());
+    }
+
+    @Test
+    public void pausesAllLanesWhenThrottled() throws Exception {
+        limiter.configure(10, 4, 10, 10);
+        limiter.throttled();
+
+        long start = System.nanoTime();
+        limiter.acquire(RpcRateLimiter.Lane.SUBMISSION);
+        // half the burst below zero and one token at 10 per second
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 250);
+    }
+
+    @Test
+    public void sortsMethodsIntoLanes() {
+        assertEquals(RpcRateLimiter.Lane.SUBMISSION, RpcRateLimiter.laneOf("eth_sendRawTransaction"));
+        assertEquals(RpcRateLimiter.Lane.SUBMISSION, RpcRateLimiter.laneOf("eth_getTransactionCount"));
+        assertEquals(RpcRateLimiter.Lane.RECEIPT, RpcRateLimiter.laneOf("eth_getTransactionReceipt"));
+        assertEquals(RpcRateLimiter.Lane.READ, RpcRateLimiter.laneOf("eth_call"));
+        assertEquals(RpcRateLimiter.Lane.READ, RpcRateLimiter.laneOf(null));
+    }
+
+    private Thread acquire(RpcRateLimiter.Lane lane, List<RpcRateLimiter.Lane> order) {
+        Thread thread = new Thread(() -> {
+            try {
+                limiter.acquire(lane);
+                order.add(lane);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("the request waits for a token", Thread.State.TIMED_WAITING, thread.getState());
+    }
+}
@@ -0,0 +1,206 @@
+package io.jenkins.plugins.dapps;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.TaskListener;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.web3j.crypto.Credentials;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.methods.response.EthSendTransaction;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.protocol.http.HttpService;
+import org.web3j.tx.response.NoOpProcessor;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TransactionAcceleratorTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final String DATA = DevOpsRegistryCodec.encodeCreateVersionProposal(new byte[20]);
+    private static final Credentials CREDENTIALS = Credentials.create("0x" + "01".repeat(32));
+    private static final String FROM = CREDENTIALS.getAddress();
+    private static final String RECEIPT = "{\"transactionHash\": \"0x" + "ab".repeat(32) + "\", \"blockNumber\": \"0xc\", \"status\": \"0x1\", \"logs\": []}";
+
+    static {
+        // the receipt is looked for every 10 instead of 15000 milliseconds
+        System.setProperty(TransactionAccelerator.class.getName() + ".pollInterval", "10");
+    }
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+    private Web3j web3j;
+
+    @After
+    public void stop() {
+        if (web3j != null) {
+            web3j.shutdown();
+        }
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void recordsTheBlockATransactionIsFirstSeenAt() throws Exception {
+        start(nonces("0x0", "0x0"),
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": null}",
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0x7\"}");
+        TransactionJournal.Entry entry = new TransactionJournal.Entry("createVersionProposal", FROM, REGISTRY, DATA,
+                BigInteger.ZERO, BigInteger.ONE, BigInteger.ONE, "0x" + "ab".repeat(32));
+
+        TransactionAccelerator.ReceiptPoll.Result result = new TransactionAccelerator.ReceiptPoll(null, entry, true).poll(web3j);
+        assertEquals(TransactionAccelerator.ReceiptPoll.Result.Kind.SEEN, result.kind);
+        assertEquals(BigInteger.valueOf(7), result.head);
+    }
+
+    @Test
+    public void replacesAStalledTransaction() throws Exception {
+        start(nonces("0x0", "0x0"),
+                "{\"method\": \"eth_sendRawTransaction\", \"result\": \"0x" + "ab".repeat(32) + "\"}",
+                // first seen at block 1, stalled at block 11, the replacement is mined
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0x1\"}",
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0xb\"}",
+                "{\"method\": \"eth_gasPrice\", \"result\": \"0x1\"}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": null}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": null}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": null}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT + "}");
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+
+        TransactionReceipt receipt = TransactionAccelerator.send(build, TaskListener.NULL, web3j, transactionManager(),
+                "createVersionProposal", REGISTRY, DATA, BigInteger.valueOf(100), BigInteger.valueOf(100000));
+
+        assertTrue(receipt.isStatusOK());
+        TransactionJournal.Entry entry = TransactionJournal.of(build).getEntries().get(0);
+        assertEquals(TransactionJournal.State.MINED, entry.getState());
+        assertEquals(2, entry.getTransactionHashes().size());
+        assertEquals(entry.getTransactionHashes().get(1), entry.getMinedTransactionHash());
+        assertEquals(BigInteger.valueOf(115), entry.getGasPrice());
+        assertEquals(BigInteger.valueOf(11), entry.getSentBlock());
+        assertEquals(2, node.getCalls("eth_sendRawTransaction"));
+    }
+
+    @Test
+    public void failsWhenTheNonceWasUsedByAnotherTransaction() throws Exception {
+        start(nonces("0x0", "0x1"),
+                "{\"method\": \"eth_sendRawTransaction\", \"result\": \"0x" + "ab".repeat(32) + "\"}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": null}");
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+
+        try {
+            TransactionAccelerator.send(build, TaskListener.NULL, web3j, transactionManager(),
+                    "createVersionProposal", REGISTRY, DATA, BigInteger.valueOf(100), BigInteger.valueOf(100000));
+            fail("the nonce was used by another transaction");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("was used by another transaction"));
+        }
+        assertEquals(TransactionJournal.State.DROPPED, TransactionJournal.of(build).getEntries().get(0).getState());
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+    }
+
+    @Test
+    public void keepsWaitingWhenTheAnswerToTheBroadcastIsLost() throws Exception {
+        start(nonces("0x0", "0x0"),
+                "{\"method\": \"eth_sendRawTransaction\", \"result\": \"0x" + "ab".repeat(32) + "\"}",
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0x1\"}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": null}",
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT + "}");
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+        PipelinedTransactionManager transactionManager = new PipelinedTransactionManager(web3j, CREDENTIALS, 1337, new NoOpProcessor(web3j)) {
+            @Override
+            EthSendTransaction sendRaw(String signedTransaction) throws IOException {
+                super.sendRaw(signedTransaction);
+                throw new IOException("Connection reset");
+            }
+        };
+
+        TransactionReceipt receipt = TransactionAccelerator.send(build, TaskListener.NULL, web3j, transactionManager,
+                "createVersionProposal", REGISTRY, DATA, BigInteger.valueOf(100), BigInteger.valueOf(100000));
+
+        assertTrue(receipt.isStatusOK());
+        TransactionJournal.Entry entry = TransactionJournal.of(build).getEntries().get(0);
+        assertEquals(TransactionJournal.State.MINED, entry.getState());
+        assertEquals(1, entry.getTransactionHashes().size());
+        assertEquals(1, node.getCalls("eth_sendRawTransaction"));
+    }
+
+    @Test
+    public void dropsATransactionTheNodeRejects() throws Exception {
+        start(nonces("0x0", "0x0"),
+                "{\"method\": \"eth_sendRawTransaction\", \"error\": {\"code\": -32000, \"message\": \"insufficient funds for gas * price + value\"}}");
+        FreeStyleBuild build = j.buildAndAssertSuccess(j.createFreeStyleProject());
+
+        try {
+            TransactionAccelerator.send(build, TaskListener.NULL, web3j, transactionManager(),
+                    "createVersionProposal", REGISTRY, DATA, BigInteger.valueOf(100), BigInteger.valueOf(100000));
+            fail("the node rejected the transaction");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("insufficient funds"));
+        }
+        assertEquals(TransactionJournal.State.DROPPED, TransactionJournal.of(build).getEntries().get(0).getState());
+        assertEquals(0, node.getCalls("eth_getTransactionReceipt"));
+    }
+
+    @Test
+    public void waitsForThePendingTransactionOfThePreviousBuild() throws Exception {
+        start(nonces("0x0", "0x0"),
+                "{\"method\": \"eth_getTransactionReceipt\", \"result\": " + RECEIPT + "}");
+        FreeStyleProject project = j.createFreeStyleProject();
+        FreeStyleBuild previous = j.buildAndAssertSuccess(project);
+        // cut off by a restart after broadcasting
+        TransactionJournal.Entry pending = TransactionJournal.of(previous).submitted("createVersionProposal", FROM, REGISTRY, DATA,
+                BigInteger.ZERO, BigInteger.valueOf(100), BigInteger.valueOf(100000), "0x" + "ab".repeat(32));
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+
+        TransactionReceipt receipt = TransactionAccelerator.send(build, TaskListener.NULL, web3j, transactionManager(),
+                "createVersionProposal", REGISTRY, DATA, BigInteger.valueOf(100), BigInteger.valueOf(100000));
+
+        assertTrue(receipt.isStatusOK());
+        assertEquals(TransactionJournal.State.HANDED_OVER, pending.getState());
+        TransactionJournal.Entry adopted = TransactionJournal.of(build).getEntries().get(0);
+        assertEquals(TransactionJournal.State.MINED, adopted.getState());
+        assertEquals(pending.getTransactionHashes(), adopted.getTransactionHashes());
+        assertEquals(0, node.getCalls("eth_sendRawTransaction"));
+    }
+
+    private void start(List<String> nonces, String... lines) throws IOException {
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        List<String> recorded = new ArrayList<>(nonces);
+        recorded.addAll(List.of(lines));
+        Files.write(recording, recorded, StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        web3j = Web3j.build(new HttpService(node.getUrl()));
+    }
+
+    private PipelinedTransactionManager transactionManager() {
+        return new PipelinedTransactionManager(web3j, CREDENTIALS, 1337, new NoOpProcessor(web3j));
+    }
+
+    /**
+     * @param pending   the next nonce to send with
+     * @param confirmed the nonce after the last mined transaction
+     */
+    private static List<String> nonces(String pending, String confirmed) {
+        return List.of(
+                "{\"method\": \"eth_getTransactionCount\", \"params\": [\"" + FROM + "\", \"pending\"], \"result\": \"" + pending + "\"}",
+                "{\"method\": \"eth_getTransactionCount\", \"params\": [\"" + FROM + "\", \"latest\"], \"result\": \"" + confirmed + "\"}");
+    }
+}
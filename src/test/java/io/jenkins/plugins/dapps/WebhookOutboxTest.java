@@ -0,0 +1,124 @@
+package io.jenkins.plugins.dapps;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WebhookOutboxTest {
+    private static final String REGISTRY = "0x5fbdb2315678afecb367f032d93f642f64180aa3";
+    private static final List<String> COMMITS = List.of("0102030405060708090a0b0c0d0e0f1011121314");
+
+    static {
+        // failed calls are repeated after 1 instead of 10 seconds
+        System.setProperty(WebhookOutbox.class.getName() + ".initialBackoff", "1");
+    }
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private JsonRpcReplayNode node;
+    private HttpServer voter;
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final Queue<String> deliveries = new ConcurrentLinkedQueue<>();
+    private String url;
+
+    @Before
+    public void start() throws Exception {
+        // the proposal stays undecided, so failed calls are repeated
+        Path recording = tmp.newFile("node.jsonl").toPath();
+        Files.write(recording, List.of(
+                "{\"method\": \"eth_blockNumber\", \"result\": \"0x10\"}",
+                "{\"method\": \"eth_getLogs\", \"result\": []}",
+                "{\"method\": \"eth_call\", " + DappMainBuilderTest.revert(TransactionPreflight.VERSION_PROPOSAL_MISSING) + "}"
+        ), StandardCharsets.UTF_8);
+        node = JsonRpcReplayNode.replay(recording).start();
+        NodeConfiguration.get().setNodeUrl(node.getUrl());
+
+        voter = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        voter.createContext("/ethops-webhook", exchange -> {
+            deliveries.add(exchange.getRequestHeaders().getFirst("X-EthOps-Delivery"));
+            Integer status = statuses.poll();
+            exchange.sendResponseHeaders(status != null ? status : 200, -1);
+            exchange.close();
+        });
+        voter.start();
+        url = "http://" + voter.getAddress().getHostString() + ":" + voter.getAddress().getPort() + "/ethops-webhook?GIVEN_GIT_COMMIT=" + COMMITS.get(0);
+    }
+
+    @After
+    public void stop() {
+        if (voter != null) {
+            voter.stop(0);
+        }
+        if (node != null) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void repeatsAFailedCallUntilItIsDelivered() throws Exception {
+        statuses.add(503);
+        WebhookOutbox outbox = WebhookOutbox.get();
+
+        assertTrue(outbox.enqueue(url, "main#1", REGISTRY, "version", COMMITS));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!outbox.pending().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("delivered on the second attempt", outbox.pending().isEmpty());
+        String key = WebhookOutbox.key(url, "main#1");
+        assertEquals(List.of(key, key), List.copyOf(deliveries));
+    }
+
+    @Test
+    public void queuesTheSameCallOncePerBuild() throws Exception {
+        WebhookOutbox outbox = WebhookOutbox.get();
+
+        assertTrue(outbox.enqueueFailed(url, "main#1", REGISTRY, "version", COMMITS, "HTTP 503"));
+        assertFalse(outbox.enqueueFailed(url, "main#1", REGISTRY, "version", COMMITS, "HTTP 503"));
+        // a later build proposing the same commit again
+        assertTrue(outbox.enqueueFailed(url, "main#2", REGISTRY, "version", COMMITS, "HTTP 503"));
+
+        List<String> keys = outbox.pending().stream().map(WebhookOutbox.Delivery::getKey).collect(Collectors.toList());
+        assertEquals(2, keys.size());
+        assertNotEquals(keys.get(0), keys.get(1));
+    }
+
+    @Test
+    public void reloadsPendingCallsAfterARestart() throws Exception {
+        WebhookOutbox outbox = WebhookOutbox.get();
+        assertTrue(outbox.enqueueFailed(url, "main#1", REGISTRY, "version", COMMITS, "HTTP 503"));
+
+        WebhookOutbox restarted = new WebhookOutbox();
+
+        List<WebhookOutbox.Delivery> pending = restarted.pending();
+        assertEquals(1, pending.size());
+        assertEquals(url, pending.get(0).getUrl());
+        assertEquals(WebhookOutbox.key(url, "main#1"), pending.get(0).getKey());
+        // the restarted outbox does not take the same call twice either
+        assertFalse(restarted.enqueue(url, "main#1", REGISTRY, "version", COMMITS));
+    }
+}